@@ -0,0 +1,40 @@
+package com.chatbot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class CursorFetchConfig {
+    
+    private static final String USE_CURSOR_FETCH = "useCursorFetch";
+    
+    /**
+     * MySQL Connector/J ignores the fetch size and buffers a whole result set unless
+     * useCursorFetch is on, so the export cursors would load a user's entire history
+     * into memory. Turned on for every MySQL pool (single, primary and replica)
+     * unless the URL or the pool's data-source-properties already set it. Only
+     * statements with a fetch size use a server-side cursor.
+     */
+    @Bean
+    public static BeanPostProcessor mysqlCursorFetchPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    String url = dataSource.getJdbcUrl();
+                    if (url != null && url.startsWith("jdbc:mysql:") && !url.contains(USE_CURSOR_FETCH)
+                            && !dataSource.getDataSourceProperties().containsKey(USE_CURSOR_FETCH)) {
+                        dataSource.addDataSourceProperty(USE_CURSOR_FETCH, "true");
+                        log.info("Enabled {} on datasource {} for streamed exports", USE_CURSOR_FETCH, beanName);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.chatbot.config;
+
+import com.chatbot.service.ReadReplicaRouting;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections to the replica for reads selected by {@link ReadReplicaRouting}
+ * inside read-only transactions, and to the primary for everything else.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replica = ReadReplicaRouting.isReplicaRead()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return replica ? REPLICA : PRIMARY;
+    }
+}
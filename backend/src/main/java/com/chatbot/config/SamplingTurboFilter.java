@@ -0,0 +1,90 @@
+package com.chatbot.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-category sampling and rate limiting for logback, configured in logback-spring.xml.
+ *
+ * Applies to events from loggers under {@code category} at {@code level} or below,
+ * or at {@code level} or above with {@code levelMatch} set to {@code min}: a
+ * {@code sampleRate} fraction of them is kept, and at most {@code eventsPerSecond}
+ * of those pass each second. Suppressed events are counted and reported once per
+ * second; the report itself is never filtered. Runs before any message formatting,
+ * so dropped events cost a counter update only.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+    
+    private static final org.slf4j.Logger REPORT = LoggerFactory.getLogger(SamplingTurboFilter.class);
+    
+    private String category = "";
+    private Level level = Level.ERROR;
+    private boolean minLevel; // Match level and above instead of level and below
+    private double sampleRate = 1.0;
+    private int eventsPerSecond = Integer.MAX_VALUE;
+    
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+    
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level eventLevel, String format, Object[] params, Throwable t) {
+        // isXxxEnabled() checks come through without a format; only count real events
+        if (format == null || !logger.getName().startsWith(category) || logger.getName().equals(REPORT.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (minLevel ? eventLevel.toInt() < level.toInt() : eventLevel.toInt() > level.toInt()) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!eventLevel.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL; // Disabled anyway
+        }
+        
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return FilterReply.DENY;
+        }
+        
+        long second = System.currentTimeMillis() / 1000;
+        long start = windowStart.get();
+        if (second != start && windowStart.compareAndSet(start, second)) {
+            windowCount.set(0);
+            long dropped = suppressed.getAndSet(0);
+            if (dropped > 0) {
+                REPORT.warn("event=log.suppressed category={} count={}", category, dropped);
+            }
+        }
+        if (windowCount.incrementAndGet() > eventsPerSecond) {
+            suppressed.incrementAndGet();
+            return FilterReply.DENY;
+        }
+        return FilterReply.NEUTRAL;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.ERROR);
+    }
+    
+    public void setLevelMatch(String levelMatch) {
+        this.minLevel = "min".equalsIgnoreCase(levelMatch);
+    }
+    
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
+    public void setEventsPerSecond(int eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+}
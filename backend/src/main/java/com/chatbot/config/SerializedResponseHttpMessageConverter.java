@@ -0,0 +1,59 @@
+package com.chatbot.config;
+
+import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.SerializedResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link ChatResponse} as JSON from the bytes already produced when the
+ * exchange was recorded, falling back to regular serialization for responses
+ * that were never serialized (errors, conflicts). Other encodings are left to
+ * their own converters.
+ */
+public class SerializedResponseHttpMessageConverter extends AbstractHttpMessageConverter<ChatResponse> {
+    
+    private final ObjectMapper objectMapper;
+    
+    public SerializedResponseHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatResponse.class.isAssignableFrom(clazz);
+    }
+    
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+    
+    @Override
+    protected ChatResponse readInternal(Class<? extends ChatResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("ChatResponse is write-only", inputMessage);
+    }
+    
+    @Override
+    protected Long getContentLength(ChatResponse response, MediaType contentType) {
+        SerializedResponse serialized = response.getSerialized();
+        return serialized != null ? (long) serialized.getJson().length : null;
+    }
+    
+    @Override
+    protected void writeInternal(ChatResponse response, HttpOutputMessage outputMessage) throws IOException {
+        SerializedResponse serialized = response.getSerialized();
+        if (serialized != null) {
+            outputMessage.getBody().write(serialized.getJson());
+        } else {
+            objectMapper.writeValue(outputMessage.getBody(), response);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.chatbot.config;
+
+import com.chatbot.controller.ChatController;
+import com.chatbot.service.ChatJobService;
+import com.chatbot.service.ChatJournal;
+import com.chatbot.service.ChatSearchIndex;
+import com.chatbot.service.ColumnCompressionMigration;
+import com.chatbot.service.ConversationCompactor;
+import com.chatbot.service.ReadReplicaRouting;
+import com.chatbot.service.SessionRetentionJob;
+import com.chatbot.service.SessionStore;
+import com.chatbot.service.SpeculativeAnswers;
+import com.chatbot.service.StartupWarmup;
+import com.chatbot.service.TokenUsageTracker;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+    
+    /**
+     * Beans that stay eager under spring.main.lazy-initialization (fast-start profile).
+     * Scheduled methods are only registered once their bean exists, so background jobs
+     * must start eagerly; the chat request path is created up front and warmed by
+     * {@link StartupWarmup}.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerChatComponents() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                ChatJournal.class,
+                ChatSearchIndex.class,
+                ConversationCompactor.class,
+                SessionRetentionJob.class,
+                ChatJobService.class,
+                SessionStore.class,
+                ReadReplicaRouting.class,
+                TokenUsageTracker.class,
+                SpeculativeAnswers.class,
+                ColumnCompressionMigration.class,
+                StartupWarmup.class,
+                ChatController.class);
+    }
+}
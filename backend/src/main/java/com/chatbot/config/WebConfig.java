@@ -0,0 +1,38 @@
+package com.chatbot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+@Configuration
+public class WebConfig {
+    
+    /**
+     * Compact binary encodings, negotiated via Accept: application/x-jackson-smile or
+     * application/cbor. Built from the application's Jackson builder so they share the
+     * JSON date and null-inclusion settings.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+    
+    /**
+     * Chat responses as JSON from the bytes written when the exchange was recorded.
+     * Registered ahead of the default Jackson converter.
+     */
+    @Bean
+    public SerializedResponseHttpMessageConverter serializedResponseHttpMessageConverter(ObjectMapper objectMapper) {
+        return new SerializedResponseHttpMessageConverter(objectMapper);
+    }
+}
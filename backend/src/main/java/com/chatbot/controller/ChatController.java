@@ -2,18 +2,51 @@ package com.chatbot.controller;
 
 import com.chatbot.model.ChatMessage;
 import com.chatbot.model.ChatSession;
+import com.chatbot.model.dto.ChatBatchItem;
+import com.chatbot.model.dto.ChatBatchRequest;
+import com.chatbot.model.dto.ChatJob;
 import com.chatbot.model.dto.ChatRequest;
 import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.ChatStreamEvent;
+import com.chatbot.model.dto.SearchResult;
+import com.chatbot.model.dto.SessionSummary;
+import com.chatbot.service.ChatBatchService;
+import com.chatbot.service.ChatExportService;
+import com.chatbot.service.ChatJobService;
 import com.chatbot.service.ChatService;
+import com.chatbot.service.SessionAffinity;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/chat")
@@ -22,35 +55,217 @@ import java.util.Map;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class ChatController {
     
+    private static final int MAX_SUMMARY_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_PAGE = 100;
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final List<MediaType> HISTORY_TYPES = Arrays.asList(
+            MediaType.APPLICATION_JSON, MediaType.valueOf(SMILE_VALUE), MediaType.APPLICATION_CBOR);
+    
     private final ChatService chatService;
+    private final ChatJobService chatJobService;
+    private final ChatBatchService chatBatchService;
+    private final ChatExportService chatExportService;
+    private final SessionAffinity sessionAffinity;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${chat.jobs.max-wait-ms:25000}")
+    private long maxJobWaitMs;
+    
+    @Value("${chat.search.allow-cross-user:false}")
+    private boolean allowCrossUserSearch;
+    
+    @Value("${chat.export.allow-cross-user:false}")
+    private boolean allowCrossUserExport;
+    
+    @Value("${chat.export.timeout-ms:3600000}")
+    private long exportTimeoutMs;
     
     @PostMapping("/message")
     public ResponseEntity<ChatResponse> sendMessage(
             @Valid @RequestBody ChatRequest request,
             Authentication authentication) {
         
-        // Set user ID from authentication if not provided
-        if (request.getUserId() == null && authentication != null) {
-            request.setUserId(authentication.getName());
-        }
+        // The exchange belongs to the authenticated user, whatever the body says
+        request.setUserId(authentication != null ? authentication.getName() : null);
         
-        log.info("Processing chat message from user: {}, session: {}", 
-                request.getUserId(), request.getSessionId());
+        log.info("event=chat.message userId={} sessionId={} length={}",
+                request.getUserId(), request.getSessionId(), request.getMessage().length());
         
         ChatResponse response = chatService.processMessage(request);
         
-        return ResponseEntity.ok(response);
+        return withOwner(response);
     }
     
-    @GetMapping("/history/{sessionId}")
+    @PostMapping(value = "/message", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMessage(
+            @Valid @RequestBody ChatRequest request,
+            Authentication authentication) {
+        
+        // The exchange belongs to the authenticated user, whatever the body says
+        request.setUserId(authentication != null ? authentication.getName() : null);
+        
+        log.info("event=chat.message userId={} sessionId={} length={} streaming=true",
+                request.getUserId(), request.getSessionId(), request.getMessage().length());
+        
+        // Table rows, list items and cards as they are parsed, then the complete response
+        StreamingResponseBody body = out -> {
+            ChatResponse response = chatService.processMessage(request, event -> writeEvent(out, event));
+            writeEvent(out, ChatStreamEvent.builder()
+                    .type(ChatStreamEvent.Type.RESPONSE)
+                    .response(response)
+                    .build());
+        };
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (request.getSessionId() != null) {
+            ok.header(SessionAffinity.OWNER_HEADER, sessionAffinity.route(request.getSessionId()));
+        }
+        return ok.body(body);
+    }
+    
+    @PostMapping(value = "/messages:batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ChatResponse>> sendBatch(
+            @Valid @RequestBody ChatBatchRequest batch,
+            Authentication authentication) {
+        
+        assignUser(batch, authentication);
+        log.info("event=chat.batch items={}", batch.getRequests().size());
+        
+        List<ChatResponse> responses = chatBatchService.process(
+                batch.getRequests(), batch.getParallelism(), (index, response) -> { });
+        return ResponseEntity.ok(responses);
+    }
+    
+    @PostMapping(value = "/messages:batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBatch(
+            @Valid @RequestBody ChatBatchRequest batch,
+            Authentication authentication) {
+        
+        assignUser(batch, authentication);
+        log.info("event=chat.batch items={} streaming=true", batch.getRequests().size());
+        
+        // One line per item, written as soon as that item finishes; a lock rather than a
+        // monitor, so a virtual thread blocked on the socket does not pin its carrier
+        StreamingResponseBody body = out -> {
+            ReentrantLock writeLock = new ReentrantLock();
+            chatBatchService.process(batch.getRequests(), batch.getParallelism(), (index, response) -> {
+                writeLock.lock();
+                try {
+                    out.write(objectMapper.writeValueAsBytes(new ChatBatchItem(index, response)));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    log.warn("event=chat.batch.stream.error index={} error={}", index, e.getMessage());
+                } finally {
+                    writeLock.unlock();
+                }
+            });
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    @PostMapping("/jobs")
+    public ResponseEntity<ChatJob> submitJob(
+            @Valid @RequestBody ChatRequest request,
+            Authentication authentication) {
+        
+        // Jobs are always owned by the authenticated caller
+        request.setUserId(authentication.getName());
+        
+        try {
+            ChatJob job = chatJobService.submit(request);
+            log.info("event=chat.job.queued jobId={} userId={}", job.getJobId(), request.getUserId());
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .path("/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("event=chat.job.rejected userId={} reason=queue-full", request.getUserId());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public DeferredResult<ResponseEntity<ChatJob>> getJob(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") long waitMs,
+            Authentication authentication) {
+        
+        String userId = authentication.getName();
+        long timeout = Math.max(0, Math.min(waitMs, maxJobWaitMs));
+        DeferredResult<ResponseEntity<ChatJob>> result = new DeferredResult<>(timeout > 0 ? timeout : null);
+        
+        Optional<ChatJob> current = chatJobService.getJob(jobId, userId);
+        if (!current.isPresent()) {
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+        ChatJob job = current.get();
+        boolean finished = job.getStatus() == ChatJob.Status.COMPLETED || job.getStatus() == ChatJob.Status.FAILED;
+        if (finished || timeout == 0) {
+            result.setResult(ResponseEntity.ok(job));
+            return result;
+        }
+        
+        // Long-poll: answer on completion, or with the current state on timeout
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(
+                chatJobService.getJob(jobId, userId).orElse(job))));
+        chatJobService.awaitJob(jobId, userId).ifPresent(future ->
+                future.thenAccept(done -> result.setResult(ResponseEntity.ok(done))));
+        return result;
+    }
+    
+    @GetMapping(value = "/history/{sessionId}", produces = {
+            MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public ResponseEntity<List<ChatMessage>> getChatHistory(
             @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest,
+            HttpServletResponse response,
             Authentication authentication) {
         
-        log.info("Retrieving chat history for session: {}", sessionId);
+        // Unchanged history answers 304 without loading or serializing messages. The
+        // encoding is part of the tag, so a cached JSON body never validates for CBOR.
+        MediaType contentType = historyContentType(accept);
+        String etag = "\"" + chatService.getHistoryVersion(sessionId) + "-" + contentType.getSubtype() + "\"";
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        
+        log.info("event=chat.history sessionId={}", sessionId);
         
         List<ChatMessage> history = chatService.getChatHistory(sessionId);
-        return ResponseEntity.ok(history);
+        return ResponseEntity.ok()
+                .header(SessionAffinity.OWNER_HEADER, sessionAffinity.route(sessionId))
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(contentType)
+                .body(history);
+    }
+    
+    /**
+     * The encoding the history is written in, chosen up front so the ETag can name
+     * it: the most preferred acceptable type, JSON when Accept is absent or a wildcard.
+     */
+    private static MediaType historyContentType(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            for (MediaType producible : HISTORY_TYPES) {
+                if (type.isCompatibleWith(producible)) {
+                    return producible;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
     
     @GetMapping("/sessions")
@@ -58,18 +273,115 @@ public class ChatController {
             Authentication authentication) {
         
         String userId = authentication.getName();
-        log.info("Retrieving sessions for user: {}", userId);
+        log.info("event=chat.sessions userId={}", userId);
         
         List<ChatSession> sessions = chatService.getUserSessions(userId);
         return ResponseEntity.ok(sessions);
     }
     
+    @GetMapping("/sessions/summary")
+    public ResponseEntity<List<SessionSummary>> getUserSessionSummaries(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            Authentication authentication) {
+        
+        String userId = authentication.getName();
+        log.info("event=chat.sessions.summary userId={}", userId);
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_SUMMARY_PAGE_SIZE));
+        List<SessionSummary> summaries = chatService.getUserSessionSummaries(userId, Math.max(0, page), pageSize);
+        return ResponseEntity.ok(summaries);
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<SearchResult> searchMessages(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) throws IOException {
+        
+        // Searching other users' history has to be enabled explicitly
+        String scopeUserId = allowCrossUserSearch ? userId : authentication.getName();
+        log.info("event=chat.search userId={} sessionId={}", scopeUserId, sessionId);
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        int pageIndex = Math.max(0, Math.min(page, MAX_SEARCH_PAGE));
+        SearchResult result = chatService.searchMessages(query, scopeUserId, sessionId, pageIndex, pageSize);
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<ResponseBodyEmitter> exportHistory(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication) {
+        
+        // Exporting other users' history has to be enabled explicitly
+        String exportUserId = allowCrossUserExport && userId != null ? userId : authentication.getName();
+        
+        ChatExportService.Position from;
+        try {
+            from = chatExportService.parseCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            log.warn("event=chat.export.rejected userId={} reason=invalid-cursor", exportUserId);
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("event=chat.export.start userId={} resumed={} gzip={}", exportUserId, cursor != null, gzip);
+        
+        // Lines go out as they are read; an export cut short has no END line and resumes from the last cursor
+        ResponseBodyEmitter body = new ResponseBodyEmitter(exportTimeoutMs);
+        Future<?> running;
+        try {
+            running = chatExportService.submit(() -> {
+                try {
+                    OutputStream out = new BufferedOutputStream(new EmitterOutputStream(body), 64 * 1024);
+                    if (gzip) {
+                        GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                        chatExportService.export(exportUserId, from, compressed);
+                        compressed.finish();
+                    } else {
+                        chatExportService.export(exportUserId, from, out);
+                    }
+                    out.flush();
+                    body.complete();
+                } catch (IOException | UncheckedIOException e) {
+                    // Client gone or the export timed out; the emitter is already complete
+                    log.warn("event=chat.export.aborted userId={} error={}", exportUserId, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.error("event=chat.export.failed userId={} error={}", exportUserId, e.getMessage(), e);
+                    body.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("event=chat.export.rejected userId={} reason=busy", exportUserId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        body.onTimeout(() -> {
+            log.warn("event=chat.export.timeout userId={} timeoutMs={}", exportUserId, exportTimeoutMs);
+            running.cancel(true);
+        });
+        if (gzip) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/gzip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"chat-export.ndjson.gz\"")
+                    .body(body);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @PostMapping("/session/{sessionId}/end")
     public ResponseEntity<Map<String, String>> endSession(
             @PathVariable String sessionId,
             Authentication authentication) {
         
-        log.info("Ending session: {}", sessionId);
+        log.info("event=chat.session.end sessionId={}", sessionId);
         
         chatService.endSession(sessionId);
         return ResponseEntity.ok(Map.of("message", "Session ended successfully"));
@@ -80,7 +392,7 @@ public class ChatController {
             @PathVariable String sessionId,
             Authentication authentication) {
         
-        log.info("Clearing history for session: {}", sessionId);
+        log.info("event=chat.history.clear sessionId={}", sessionId);
         
         chatService.clearHistory(sessionId);
         return ResponseEntity.ok(Map.of("message", "History cleared successfully"));
@@ -91,10 +403,39 @@ public class ChatController {
         // Demo endpoint that doesn't require authentication
         request.setUserId("demo-user");
         
-        log.info("Processing demo message: {}", request.getMessage());
+        // Message text stays out of the logs
+        log.info("event=chat.demo sessionId={} length={}", request.getSessionId(), request.getMessage().length());
         
         ChatResponse response = chatService.processMessage(request);
-        return ResponseEntity.ok(response);
+        return withOwner(response);
+    }
+    
+    private ResponseEntity<ChatResponse> withOwner(ChatResponse response) {
+        // Affinity hint for the load balancer; new sessions are keyed by the id just assigned
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (response.getSessionId() != null) {
+            ok.header(SessionAffinity.OWNER_HEADER, sessionAffinity.route(response.getSessionId()));
+        }
+        return ok.body(response);
+    }
+    
+    private void writeEvent(OutputStream out, ChatStreamEvent event) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(event));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // Client went away; the exchange still completes and is recorded
+            log.warn("event=chat.message.stream.error type={} error={}", event.getType(), e.getMessage());
+        }
+    }
+    
+    private void assignUser(ChatBatchRequest batch, Authentication authentication) {
+        // Every item belongs to the authenticated user, whatever the body says
+        String userId = authentication != null ? authentication.getName() : null;
+        batch.getRequests().stream()
+                .filter(Objects::nonNull)
+                .forEach(request -> request.setUserId(userId));
     }
     
     @GetMapping("/health")
@@ -105,4 +446,31 @@ public class ChatController {
                 "timestamp", java.time.LocalDateTime.now().toString()
         ));
     }
-}
\ No newline at end of file
+    
+    /**
+     * Sends each write as one chunk of the emitter's response. A send after the
+     * emitter completed, e.g. on timeout, fails like a closed connection.
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+        
+        private final ResponseBodyEmitter emitter;
+        
+        private EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                emitter.send(Arrays.copyOfRange(bytes, offset, offset + length), MediaType.APPLICATION_OCTET_STREAM);
+            } catch (IllegalStateException e) {
+                throw new IOException("Export response already completed", e);
+            }
+        }
+    }
+}
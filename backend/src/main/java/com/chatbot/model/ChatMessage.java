@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_session_ts", columnList = "sessionId, timestamp"),
+        @Index(name = "idx_chat_messages_user_ts", columnList = "userId, timestamp"),
+        @Index(name = "idx_chat_messages_user_id", columnList = "userId, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,9 +31,11 @@ public class ChatMessage {
     @Column(nullable = false)
     private String userId;
     
+    @Convert(converter = CompressedTextConverter.class)
     @Column(nullable = false, columnDefinition = "TEXT")
     private String message;
     
+    @Convert(converter = CompressedTextConverter.class)
     @Column(nullable = false, columnDefinition = "TEXT")
     private String response;
     
@@ -41,15 +47,27 @@ public class ChatMessage {
     @Column(nullable = false)
     private ResponseFormat responseFormat;
     
+    @Convert(converter = CompressedTextConverter.class)
     @Column(columnDefinition = "TEXT")
     private String metadata; // JSON string for additional data
     
+    @Column(nullable = false)
+    private Boolean compacted; // Folded into the session summary, no longer replayed
+    
     @Column(nullable = false)
     private LocalDateTime timestamp;
     
+    @Column(unique = true, length = 36)
+    private String journalId; // Set when written through the journal; replay skips ids already stored
+    
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
+        if (compacted == null) {
+            compacted = false;
+        }
     }
     
     public enum MessageType {
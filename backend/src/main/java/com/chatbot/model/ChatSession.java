@@ -1,5 +1,6 @@
 package com.chatbot.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -9,13 +10,18 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_sessions")
+@Table(name = "chat_sessions", indexes = {
+        @Index(name = "idx_chat_sessions_last_activity", columnList = "lastActivity"),
+        @Index(name = "idx_chat_sessions_user_active", columnList = "userId, active, lastActivity")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class ChatSession {
     
+    public static final int PREVIEW_LENGTH = 200;
+    
     @Id
     private String sessionId;
     
@@ -25,6 +31,14 @@ public class ChatSession {
     @Column(columnDefinition = "TEXT")
     private String context; // JSON string for session context
     
+    private Long contextVersion; // Incremented whenever the context changes
+    
+    @Column(columnDefinition = "TEXT")
+    private String renderedContext; // Prompt block rendered from context
+    
+    @Column(columnDefinition = "TEXT")
+    private String summary; // Rolling summary of compacted turns
+    
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
@@ -34,11 +48,36 @@ public class ChatSession {
     @Column(nullable = false)
     private Boolean active;
     
+    @Column(nullable = false)
+    private Integer messageCount; // Denormalized, maintained on write
+    
+    private Integer compactedCount; // Messages folded into the summary
+    
+    @Column(length = 200)
+    private String lastMessagePreview;
+    
+    /**
+     * Messages not yet folded into the summary.
+     */
+    @JsonIgnore
+    public int getUncompactedCount() {
+        return (messageCount != null ? messageCount : 0) - (compactedCount != null ? compactedCount : 0);
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         lastActivity = LocalDateTime.now();
         active = true;
+        if (messageCount == null) {
+            messageCount = 0;
+        }
+        if (compactedCount == null) {
+            compactedCount = 0;
+        }
+        if (contextVersion == null) {
+            contextVersion = 0L;
+        }
     }
     
     @PreUpdate
@@ -0,0 +1,30 @@
+package com.chatbot.model;
+
+import com.chatbot.service.ColumnCompression;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Transparently compresses large text columns. Values written before compression
+ * was enabled (or while it is disabled) are stored and read back as plain text.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, String> {
+    
+    private final ColumnCompression compression;
+    
+    public CompressedTextConverter(ColumnCompression compression) {
+        this.compression = compression;
+    }
+    
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+        return compression.compress(attribute);
+    }
+    
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+        return compression.decompress(dbData);
+    }
+}
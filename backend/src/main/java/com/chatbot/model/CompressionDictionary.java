@@ -0,0 +1,37 @@
+package com.chatbot.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "compression_dictionaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompressionDictionary {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Lob
+    @Column(nullable = false)
+    private byte[] dictionary; // Deflate preset dictionary trained from chat text
+    
+    @Column(nullable = false)
+    private Integer sampleSize;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,29 @@
+package com.chatbot.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "session_store", indexes = {
+        @Index(name = "idx_session_store_expires", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionStoreEntry {
+    
+    @Id
+    private String storeKey; // namespace:key
+    
+    @Column(columnDefinition = "TEXT")
+    private String payload; // JSON value
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,41 @@
+package com.chatbot.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "token_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_token_usage_user_date", columnNames = {"userId", "usageDate"})
+}, indexes = {
+        @Index(name = "idx_token_usage_date", columnList = "usageDate")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TokenUsage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String userId;
+    
+    @Column(nullable = false)
+    private LocalDate usageDate;
+    
+    @Column(nullable = false)
+    private Long promptTokens;
+    
+    @Column(nullable = false)
+    private Long completionTokens;
+    
+    @Column(nullable = false)
+    private Long requests; // Exchanges that reached the provider
+}
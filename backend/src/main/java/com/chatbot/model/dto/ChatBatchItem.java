@@ -0,0 +1,15 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatBatchItem {
+    
+    private int index; // Position in the submitted batch
+    
+    private ChatResponse response;
+}
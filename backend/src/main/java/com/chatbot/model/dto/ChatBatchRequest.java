@@ -0,0 +1,21 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatBatchRequest {
+    
+    @NotEmpty(message = "Batch cannot be empty")
+    @Size(max = 1000, message = "Batch cannot exceed 1000 requests")
+    private List<ChatRequest> requests; // Validated per item, invalid items fail individually
+    
+    private Integer parallelism; // Capped by chat.batch.max-parallelism
+}
@@ -23,7 +23,9 @@ public class ChatRequest {
     
     private String currentPage; // Current page context
     
-    private Map<String, Object> systemContext; // System data context
+    private Map<String, Object> systemContext; // Full system data context, replaces the session context
+    
+    private ContextDelta contextDelta; // Incremental update to the session context
     
     private Map<String, Object> userPreferences; // User preferences
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package com.chatbot.model.dto;
 
 import com.chatbot.model.ChatMessage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +26,7 @@ public class ChatResponse {
     
     private ChatMessage.ResponseFormat responseFormat;
     
+    @JsonSerialize(using = ResponseContentSerializer.class)
     private Object content; // Dynamic content based on response format
     
     private LocalDateTime timestamp;
@@ -30,10 +35,87 @@ public class ChatResponse {
     
     private String error;
     
+    @JsonSerialize(using = MetadataSerializer.class)
     private Map<String, Object> metadata;
     
     private List<ActionButton> suggestedActions;
     
+    private Long contextVersion; // Current session context version, base for the next delta
+    
+    private Usage usage; // Provider tokens spent on this response, absent when answered from cache
+    
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient SerializedResponse serialized; // Written once when the exchange is recorded, reused as the HTTP body
+    
+    // Setters drop the serialized bytes, so a response changed after recording is written afresh
+    
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+        this.serialized = null;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+        this.serialized = null;
+    }
+    
+    public void setResponseFormat(ChatMessage.ResponseFormat responseFormat) {
+        this.responseFormat = responseFormat;
+        this.serialized = null;
+    }
+    
+    public void setContent(Object content) {
+        this.content = content;
+        this.serialized = null;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+        this.serialized = null;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+        this.serialized = null;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+        this.serialized = null;
+    }
+    
+    public void setMetadata(Map<String, Object> metadata) {
+        this.metadata = metadata;
+        this.serialized = null;
+    }
+    
+    public void setSuggestedActions(List<ActionButton> suggestedActions) {
+        this.suggestedActions = suggestedActions;
+        this.serialized = null;
+    }
+    
+    public void setContextVersion(Long contextVersion) {
+        this.contextVersion = contextVersion;
+        this.serialized = null;
+    }
+    
+    public void setUsage(Usage usage) {
+        this.usage = usage;
+        this.serialized = null;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Usage {
+        private String model;
+        private long promptTokens;
+        private long completionTokens;
+    }
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -41,7 +123,7 @@ public class ChatResponse {
     public static class ActionButton {
         private String label;
         private String action;
-        private String type; // 'link', 'function', 'navigation'
+        private String type; // 'link', 'function', 'navigation', 'message'
         private Map<String, Object> parameters;
     }
     
@@ -0,0 +1,42 @@
+package com.chatbot.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatStreamEvent {
+    
+    private Type type;
+    
+    private String title;
+    
+    private Integer index; // Position of a ROW or ITEM within its table or list
+    
+    private List<String> headers;
+    
+    private List<Object> row;
+    
+    private ChatResponse.ListContent.ListItem item;
+    
+    private ChatResponse.CardContent card;
+    
+    private ChatResponse response; // Complete response, always the last event
+    
+    public enum Type {
+        TABLE, // Table started: title and headers, rows follow
+        ROW,
+        LIST, // List started: title, items follow
+        ITEM,
+        CARD,
+        RESPONSE
+    }
+}
@@ -0,0 +1,27 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompressionReport {
+    
+    private long rowsScanned;
+    
+    private long rowsRewritten;
+    
+    private long bytesBefore;
+    
+    private long bytesAfter;
+    
+    private double averageDecompressMicros; // Read-path cost per column value
+    
+    public long getBytesSaved() {
+        return bytesBefore - bytesAfter;
+    }
+}
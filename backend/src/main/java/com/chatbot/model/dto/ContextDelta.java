@@ -0,0 +1,24 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContextDelta {
+    
+    private Long baseVersion; // Session context version the delta was computed against
+    
+    private Map<String, Object> set; // Keys to add or overwrite
+    
+    private List<String> remove; // Keys to drop
+    
+    public boolean isEmpty() {
+        return (set == null || set.isEmpty()) && (remove == null || remove.isEmpty());
+    }
+}
@@ -0,0 +1,29 @@
+package com.chatbot.model.dto;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.ChatSession;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportRecord {
+    
+    private Type type;
+    
+    private String cursor; // Pass back as ?cursor= to resume after this line
+    
+    private ChatSession session;
+    
+    private ChatMessage message;
+    
+    public enum Type {
+        SESSION,
+        MESSAGE,
+        END // Last line of a complete export
+    }
+}
@@ -0,0 +1,104 @@
+package com.chatbot.model.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes response metadata like the default map serializer and, while a capture
+ * is active on the current thread, records the byte range of every entry that is
+ * not null or empty (e.g. the empty entity map analyzeMessage produces for most
+ * messages). The stored copy is assembled from those ranges, so it drops empty
+ * entries while the HTTP body keeps them.
+ */
+public class MetadataSerializer extends StdSerializer<Map<String, Object>> {
+    
+    private static final ThreadLocal<List<Integer>> CAPTURE = new ThreadLocal<>();
+    
+    @SuppressWarnings("unchecked")
+    public MetadataSerializer() {
+        super((Class<Map<String, Object>>) (Class<?>) Map.class);
+    }
+    
+    /**
+     * Start recording the metadata entry ranges for serialization on this thread.
+     * Once metadata is written the returned list holds start and end offsets of each
+     * kept entry, or a single -1 when the output is not a byte buffer.
+     */
+    public static List<Integer> startCapture() {
+        List<Integer> ranges = new ArrayList<>();
+        CAPTURE.set(ranges);
+        return ranges;
+    }
+    
+    public static void endCapture() {
+        CAPTURE.remove();
+    }
+    
+    @Override
+    public void serialize(Map<String, Object> metadata, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        List<Integer> ranges = CAPTURE.get();
+        if (ranges != null && position(gen) < 0) {
+            ranges.add(-1);
+            ranges = null;
+        }
+        gen.writeStartObject(metadata);
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            // A range starts before the entry, so all but the first include the ',' separator
+            int start = ranges != null ? position(gen) : -1;
+            provider.defaultSerializeField(entry.getKey(), entry.getValue(), gen);
+            if (ranges != null && !isEmptyValue(entry.getValue())) {
+                ranges.add(start);
+                ranges.add(position(gen));
+            }
+        }
+        gen.writeEndObject();
+    }
+    
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Map<String, Object> metadata) {
+        return metadata.isEmpty();
+    }
+    
+    /**
+     * Assemble the stored metadata object from the captured entry ranges.
+     */
+    public static String storedJson(byte[] json, List<Integer> ranges) {
+        StringBuilder stored = new StringBuilder(json.length / 4).append('{');
+        for (int i = 0; i < ranges.size(); i += 2) {
+            int start = ranges.get(i);
+            int end = ranges.get(i + 1);
+            while (start < end && (json[start] == ',' || Character.isWhitespace(json[start]))) {
+                start++;
+            }
+            if (i > 0) {
+                stored.append(',');
+            }
+            stored.append(new String(json, start, end - start, StandardCharsets.UTF_8));
+        }
+        return stored.append('}').toString();
+    }
+    
+    private static boolean isEmptyValue(Object value) {
+        return value == null
+                || (value instanceof Map && ((Map<?, ?>) value).isEmpty())
+                || (value instanceof Collection && ((Collection<?>) value).isEmpty())
+                || (value instanceof String && ((String) value).isEmpty());
+    }
+    
+    private static int position(JsonGenerator gen) {
+        Object target = gen.getOutputTarget();
+        if (!(target instanceof ByteArrayOutputStream)) {
+            return -1;
+        }
+        return ((ByteArrayOutputStream) target).size() + gen.getOutputBuffered();
+    }
+}
@@ -0,0 +1,59 @@
+package com.chatbot.model.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Serializer for {@link ChatResponse#getContent()}. The card, list and table
+ * serializers are resolved once per mapper instead of being looked up from the
+ * runtime type of the declared {@code Object} on every response.
+ */
+public class ResponseContentSerializer extends StdSerializer<Object> implements ContextualSerializer {
+    
+    private final JsonSerializer<Object> cardSerializer;
+    private final JsonSerializer<Object> listSerializer;
+    private final JsonSerializer<Object> tableSerializer;
+    
+    public ResponseContentSerializer() {
+        this(null, null, null);
+    }
+    
+    private ResponseContentSerializer(JsonSerializer<Object> cardSerializer,
+                                      JsonSerializer<Object> listSerializer,
+                                      JsonSerializer<Object> tableSerializer) {
+        super(Object.class);
+        this.cardSerializer = cardSerializer;
+        this.listSerializer = listSerializer;
+        this.tableSerializer = tableSerializer;
+    }
+    
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        return new ResponseContentSerializer(
+                provider.findValueSerializer(ChatResponse.CardContent.class, property),
+                provider.findValueSerializer(ChatResponse.ListContent.class, property),
+                provider.findValueSerializer(ChatResponse.TableContent.class, property));
+    }
+    
+    @Override
+    public void serialize(Object content, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (content instanceof String) {
+            gen.writeString((String) content);
+        } else if (content instanceof ChatResponse.CardContent && cardSerializer != null) {
+            cardSerializer.serialize(content, gen, provider);
+        } else if (content instanceof ChatResponse.ListContent && listSerializer != null) {
+            listSerializer.serialize(content, gen, provider);
+        } else if (content instanceof ChatResponse.TableContent && tableSerializer != null) {
+            tableSerializer.serialize(content, gen, provider);
+        } else {
+            provider.defaultSerializeValue(content, gen);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchResult {
+    
+    private long totalHits;
+    
+    private int page;
+    
+    private int size;
+    
+    private List<Hit> hits;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Hit {
+        private Long messageId;
+        private String sessionId;
+        private String userId;
+        private LocalDateTime timestamp;
+        private String message;
+        private String response;
+        private float score;
+    }
+}
@@ -0,0 +1,28 @@
+package com.chatbot.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * JSON form of a {@link ChatResponse}, written once and shared by the HTTP body
+ * and the persisted message. Records where the kept metadata entries sit in the bytes.
+ */
+@Getter
+@AllArgsConstructor
+public class SerializedResponse {
+    
+    private final byte[] json;
+    private final List<Integer> metadataRanges; // null when the response has no metadata
+    
+    /**
+     * Metadata as stored with the message, without null or empty entries.
+     */
+    public String metadataJson() {
+        if (metadataRanges == null) {
+            return null;
+        }
+        return MetadataSerializer.storedJson(json, metadataRanges);
+    }
+}
@@ -0,0 +1,23 @@
+package com.chatbot.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionSummary {
+    
+    private String sessionId;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime lastActivity;
+    
+    private int messageCount;
+    
+    private String lastMessagePreview;
+}
@@ -1,28 +1,82 @@
 package com.chatbot.model.repository;
 
 import com.chatbot.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
     List<ChatMessage> findBySessionIdOrderByTimestampAsc(String sessionId);
     
-    List<ChatMessage> findByUserIdOrderByTimestampDesc(String userId);
+    /**
+     * Forward-only cursor over a user's messages in id order, for exports. Must be
+     * consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.userId = :userId AND cm.id > :afterId ORDER BY cm.id ASC")
+    Stream<ChatMessage> streamByUserAfterId(@Param("userId") String userId, @Param("afterId") long afterId);
+    
+    @Query("SELECT COUNT(cm), MAX(cm.id), SUM(CASE WHEN cm.compacted = true THEN 1 ELSE 0 END) " +
+           "FROM ChatMessage cm WHERE cm.sessionId = :sessionId")
+    List<Object[]> findHistoryVersion(@Param("sessionId") String sessionId);
+    
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm")
+    Long findMaxId();
     
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId AND cm.timestamp >= :since ORDER BY cm.timestamp ASC")
     List<ChatMessage> findRecentMessagesBySession(@Param("sessionId") String sessionId, @Param("since") LocalDateTime since);
     
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId AND cm.compacted = false " +
+           "AND cm.timestamp >= :since ORDER BY cm.timestamp ASC")
+    List<ChatMessage> findRecentUncompactedMessagesBySession(@Param("sessionId") String sessionId, @Param("since") LocalDateTime since);
+    
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.sessionId = :sessionId AND cm.compacted = false ORDER BY cm.timestamp ASC")
+    List<ChatMessage> findUncompactedMessagesBySession(@Param("sessionId") String sessionId);
+    
+    @Query("SELECT cm.sessionId FROM ChatMessage cm WHERE cm.compacted = false " +
+           "GROUP BY cm.sessionId HAVING COUNT(cm) > :threshold")
+    List<String> findSessionIdsNeedingCompaction(@Param("threshold") long threshold, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE ChatMessage cm SET cm.compacted = true WHERE cm.id IN :ids")
+    int markCompacted(@Param("ids") Collection<Long> ids);
+    
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.userId = :userId AND cm.timestamp >= :since ORDER BY cm.timestamp DESC")
     List<ChatMessage> findRecentMessagesByUser(@Param("userId") String userId, @Param("since") LocalDateTime since);
     
     void deleteBySessionId(String sessionId);
     
     void deleteByUserIdAndTimestampBefore(String userId, LocalDateTime before);
+    
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.id > :afterId ORDER BY cm.id ASC")
+    List<ChatMessage> findMessagesAfterId(@Param("afterId") long afterId, Pageable pageable);
+    
+    @Query("SELECT cm.journalId FROM ChatMessage cm WHERE cm.journalId IN :journalIds")
+    List<String> findJournalIds(@Param("journalIds") Collection<String> journalIds);
+    
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.sessionId IN :sessionIds")
+    List<Long> findIdsBySessionIds(@Param("sessionIds") Collection<String> sessionIds, Pageable pageable);
+    
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.timestamp < :before AND NOT EXISTS " +
+           "(SELECT cs.sessionId FROM ChatSession cs WHERE cs.sessionId = cm.sessionId)")
+    List<Long> findOrphanedMessageIds(@Param("before") LocalDateTime before, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
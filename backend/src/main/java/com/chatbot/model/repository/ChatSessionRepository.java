@@ -1,15 +1,24 @@
 package com.chatbot.model.repository;
 
 import com.chatbot.model.ChatSession;
+import com.chatbot.model.dto.SessionSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, String> {
@@ -18,9 +27,47 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, String
     
     Optional<ChatSession> findBySessionIdAndActiveTrue(String sessionId);
     
+    /**
+     * Forward-only cursor over all of a user's sessions in id order, for exports. Must
+     * be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT cs FROM ChatSession cs WHERE cs.userId = :userId AND cs.sessionId > :afterSessionId ORDER BY cs.sessionId ASC")
+    Stream<ChatSession> streamByUserAfterSessionId(@Param("userId") String userId,
+                                                   @Param("afterSessionId") String afterSessionId);
+    
     @Query("SELECT cs FROM ChatSession cs WHERE cs.userId = :userId AND cs.active = true ORDER BY cs.lastActivity DESC")
     List<ChatSession> findActiveSessionsByUser(@Param("userId") String userId);
     
+    @Query("SELECT new com.chatbot.model.dto.SessionSummary(cs.sessionId, cs.createdAt, cs.lastActivity, " +
+           "COALESCE(cs.messageCount, 0), cs.lastMessagePreview) " +
+           "FROM ChatSession cs WHERE cs.userId = :userId AND cs.active = true ORDER BY cs.lastActivity DESC")
+    List<SessionSummary> findActiveSessionSummariesByUser(@Param("userId") String userId, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.messageCount = COALESCE(cs.messageCount, 0) + 1, " +
+           "cs.lastMessagePreview = :preview, cs.lastActivity = :now WHERE cs.sessionId = :sessionId")
+    int recordExchange(@Param("sessionId") String sessionId, @Param("preview") String preview,
+                       @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.messageCount = 0, cs.compactedCount = 0, cs.lastMessagePreview = null, " +
+           "cs.summary = null WHERE cs.sessionId = :sessionId")
+    int resetHistoryState(@Param("sessionId") String sessionId);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.summary = :summary, " +
+           "cs.compactedCount = COALESCE(cs.compactedCount, 0) + :compacted WHERE cs.sessionId = :sessionId")
+    int updateSummary(@Param("sessionId") String sessionId, @Param("summary") String summary,
+                      @Param("compacted") int compacted);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ChatSession cs SET cs.context = :context, cs.renderedContext = :renderedContext, " +
+           "cs.contextVersion = :baseVersion + 1 " +
+           "WHERE cs.sessionId = :sessionId AND COALESCE(cs.contextVersion, 0) = :baseVersion")
+    int updateContext(@Param("sessionId") String sessionId, @Param("context") String context,
+                      @Param("renderedContext") String renderedContext, @Param("baseVersion") long baseVersion);
+    
     @Modifying
     @Query("UPDATE ChatSession cs SET cs.active = false WHERE cs.lastActivity < :cutoffTime")
     int deactivateInactiveSessions(@Param("cutoffTime") LocalDateTime cutoffTime);
@@ -29,5 +76,17 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, String
     @Query("UPDATE ChatSession cs SET cs.active = false WHERE cs.sessionId = :sessionId")
     int deactivateSession(@Param("sessionId") String sessionId);
     
-    void deleteByLastActivityBefore(LocalDateTime before);
+    @Query("SELECT cs.sessionId FROM ChatSession cs WHERE cs.active = true AND cs.lastActivity < :cutoffTime ORDER BY cs.lastActivity ASC")
+    List<String> findInactiveSessionIds(@Param("cutoffTime") LocalDateTime cutoffTime, Pageable pageable);
+    
+    @Query("SELECT cs.sessionId FROM ChatSession cs WHERE cs.lastActivity < :before ORDER BY cs.lastActivity ASC")
+    List<String> findExpiredSessionIds(@Param("before") LocalDateTime before, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE ChatSession cs SET cs.active = false WHERE cs.sessionId IN :sessionIds")
+    int deactivateSessions(@Param("sessionIds") Collection<String> sessionIds);
+    
+    @Modifying
+    @Query("DELETE FROM ChatSession cs WHERE cs.sessionId IN :sessionIds")
+    int deleteSessions(@Param("sessionIds") Collection<String> sessionIds);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.chatbot.model.repository;
+
+import com.chatbot.model.SessionStoreEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SessionStoreRepository extends JpaRepository<SessionStoreEntry, String> {
+    
+    @Modifying
+    @Query("DELETE FROM SessionStoreEntry e WHERE e.storeKey = :storeKey")
+    int deleteByStoreKey(@Param("storeKey") String storeKey);
+    
+    @Modifying
+    @Query("DELETE FROM SessionStoreEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
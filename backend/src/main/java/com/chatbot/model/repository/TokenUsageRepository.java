@@ -0,0 +1,28 @@
+package com.chatbot.model.repository;
+
+import com.chatbot.model.TokenUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface TokenUsageRepository extends JpaRepository<TokenUsage, Long> {
+    
+    @Query("SELECT u.promptTokens + u.completionTokens FROM TokenUsage u " +
+           "WHERE u.userId = :userId AND u.usageDate = :usageDate")
+    Long findTotalTokens(@Param("userId") String userId, @Param("usageDate") LocalDate usageDate);
+    
+    @Modifying
+    @Query("UPDATE TokenUsage u SET u.promptTokens = u.promptTokens + :promptTokens, " +
+           "u.completionTokens = u.completionTokens + :completionTokens, u.requests = u.requests + :requests " +
+           "WHERE u.userId = :userId AND u.usageDate = :usageDate")
+    int addUsage(@Param("userId") String userId,
+                 @Param("usageDate") LocalDate usageDate,
+                 @Param("promptTokens") long promptTokens,
+                 @Param("completionTokens") long completionTokens,
+                 @Param("requests") long requests);
+}
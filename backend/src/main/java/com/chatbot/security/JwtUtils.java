@@ -59,13 +59,13 @@ public class JwtUtils {
                 .parseClaimsJws(authToken);
             return true;
         } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
+            log.warn("event=auth.token.invalid reason=malformed error={}", e.getMessage());
         } catch (ExpiredJwtException e) {
-            log.error("JWT token is expired: {}", e.getMessage());
+            log.debug("event=auth.token.invalid reason=expired");
         } catch (UnsupportedJwtException e) {
-            log.error("JWT token is unsupported: {}", e.getMessage());
+            log.warn("event=auth.token.invalid reason=unsupported error={}", e.getMessage());
         } catch (IllegalArgumentException e) {
-            log.error("JWT claims string is empty: {}", e.getMessage());
+            log.warn("event=auth.token.invalid reason=empty");
         }
         return false;
     }
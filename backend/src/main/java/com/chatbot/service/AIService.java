@@ -2,9 +2,11 @@ package com.chatbot.service;
 
 import com.chatbot.model.dto.ChatRequest;
 import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.ChatStreamEvent;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface AIService {
     
@@ -13,6 +15,29 @@ public interface AIService {
      */
     ChatResponse processMessage(ChatRequest request, List<String> conversationHistory);
     
+    /**
+     * Process a chat message using a system context block already rendered by {@link #renderContext}
+     */
+    ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext);
+    
+    /**
+     * Process a chat message with a pre-rendered context, completing with the given model instead of the configured one
+     */
+    ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext,
+                                String modelOverride);
+    
+    /**
+     * Process a chat message while streaming the answer, reporting table rows, list items and cards
+     * to the listener as soon as they are parsed; a null listener makes this a regular call
+     */
+    ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext,
+                                String modelOverride, Consumer<ChatStreamEvent> updates);
+    
+    /**
+     * Render system context into the prompt block used by processMessage
+     */
+    String renderContext(Map<String, Object> systemContext);
+    
     /**
      * Generate a response based on system context
      */
@@ -23,8 +48,24 @@ public interface AIService {
      */
     ChatResponse formatResponse(String message, Object content, String format);
     
+    /**
+     * Fold conversation turns into a rolling summary, extending any previous summary,
+     * and report the provider tokens spent to onUsage
+     */
+    String summarizeConversation(String previousSummary, List<String> turns, Consumer<ChatResponse.Usage> onUsage);
+    
     /**
      * Analyze user message to determine response format and content type
      */
     Map<String, Object> analyzeMessage(String message, Map<String, Object> context);
-}
\ No newline at end of file
+    
+    /**
+     * Exercise the local analysis, prompt and formatting paths for a sample request, without calling the provider
+     */
+    void warmUp(ChatRequest sample);
+    
+    /**
+     * Open connections to the provider, TLS handshake included, using a request that generates nothing
+     */
+    void prewarmConnections(int connections);
+}
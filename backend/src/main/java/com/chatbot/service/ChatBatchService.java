@@ -0,0 +1,142 @@
+package com.chatbot.service;
+
+import com.chatbot.model.dto.ChatRequest;
+import com.chatbot.model.dto.ChatResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Processes batches of independent chat requests concurrently.
+ *
+ * Items fan out over a shared pool of max-parallelism workers, further limited
+ * per batch by the requested parallelism. Each item fails on its own; the
+ * generated exchanges are persisted together once the batch completes. If that
+ * write fails, every generated item is reported again, marked EXCHANGE_NOT_SAVED.
+ */
+@Service
+@Slf4j
+public class ChatBatchService {
+
+    public static final String EXCHANGE_NOT_SAVED = "EXCHANGE_NOT_SAVED";
+
+    private final ChatService chatService;
+    private final Validator validator;
+    private final ExecutorService executor;
+    private final int maxParallelism;
+
+    public ChatBatchService(ChatService chatService,
+                            Validator validator,
+                            @Value("${chat.batch.max-parallelism:16}") int maxParallelism) {
+        this.chatService = chatService;
+        this.validator = validator;
+        this.maxParallelism = maxParallelism;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "chat-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Process a batch, returning responses in request order. onItem is called from
+     * worker threads as each item finishes, and once more for each generated item
+     * if the batch could not be persisted.
+     */
+    public List<ChatResponse> process(List<ChatRequest> requests, Integer parallelism,
+                                      BiConsumer<Integer, ChatResponse> onItem) {
+        int permits = parallelism != null ? Math.max(1, Math.min(parallelism, maxParallelism)) : maxParallelism;
+        Semaphore fanOut = new Semaphore(permits);
+
+        ChatResponse[] responses = new ChatResponse[requests.size()];
+        ChatExchange[] exchanges = new ChatExchange[requests.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            int index = i;
+            ChatRequest request = requests.get(i);
+
+            String invalid = validate(request);
+            if (invalid != null) {
+                responses[index] = chatService.errorResponse(request, new IllegalArgumentException(invalid));
+                onItem.accept(index, responses[index]);
+                continue;
+            }
+
+            fanOut.acquireUninterruptibly();
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    ChatExchange exchange = chatService.prepareExchange(request);
+                    if (exchange.getResponse() == null) {
+                        chatService.generateResponse(exchange);
+                        exchanges[index] = exchange;
+                    }
+                    responses[index] = exchange.getResponse();
+                } catch (Exception e) {
+                    log.error("Error processing batch item {}: {}", index, e.getMessage(), e);
+                    responses[index] = chatService.errorResponse(request, e);
+                } finally {
+                    fanOut.release();
+                }
+                onItem.accept(index, responses[index]);
+            }, executor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        List<ChatExchange> generated = Arrays.stream(exchanges)
+                .filter(exchange -> exchange != null)
+                .collect(Collectors.toList());
+        if (!generated.isEmpty()) {
+            try {
+                chatService.recordExchanges(generated);
+            } catch (Exception e) {
+                log.error("Error persisting batch of {} exchange(s): {}", generated.size(), e.getMessage(), e);
+                // The answers stand, but they are missing from the history
+                for (int i = 0; i < exchanges.length; i++) {
+                    if (exchanges[i] != null) {
+                        responses[i].setSuccess(false);
+                        responses[i].setError(EXCHANGE_NOT_SAVED);
+                        onItem.accept(i, responses[i]);
+                    }
+                }
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private String validate(ChatRequest request) {
+        if (request == null) {
+            return "Request cannot be null";
+        }
+        Set<ConstraintViolation<ChatRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,26 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatSession;
+import com.chatbot.model.dto.ChatRequest;
+import com.chatbot.model.dto.ChatResponse;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One request/response exchange moving through {@link ChatService}: prepared
+ * (session, context and history resolved), generated, then recorded.
+ */
+@Data
+public class ChatExchange {
+    
+    private final ChatRequest request;
+    
+    private final ChatSession session;
+    
+    private List<String> history;
+    
+    private String model; // Completion model override, e.g. after the user's quota was exceeded
+    
+    private ChatResponse response; // Set by generation, or early when preparation short-circuits
+}
@@ -0,0 +1,206 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.ChatSession;
+import com.chatbot.model.dto.ExportRecord;
+import com.chatbot.model.repository.ChatMessageRepository;
+import com.chatbot.model.repository.ChatSessionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Streams a user's sessions and messages as NDJSON.
+ *
+ * Sessions come first in session id order, then messages in id order, each read
+ * through a forward-only cursor and detached once written, so memory stays flat
+ * however large the history is. Every line carries an opaque cursor; passing the
+ * cursor of the last line received resumes the export right after it. The last
+ * line of a complete export has type END.
+ *
+ * Exports run on their own pool of max-concurrent workers rather than the MVC
+ * async executor, so long downloads never hold the threads streamed chat
+ * responses need; beyond that limit new exports are rejected.
+ */
+@Service
+@Slf4j
+public class ChatExportService {
+    
+    private static final String SESSION_CURSOR = "s:";
+    private static final String MESSAGE_CURSOR = "m:";
+    
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final EntityManager entityManager;
+    private final ReadReplicaRouting readReplicaRouting;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readTransaction;
+    private final ThreadPoolExecutor executor;
+    
+    public ChatExportService(ChatSessionRepository sessionRepository,
+                             ChatMessageRepository messageRepository,
+                             EntityManager entityManager,
+                             ReadReplicaRouting readReplicaRouting,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${chat.export.max-concurrent:4}") int maxConcurrent) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.entityManager = entityManager;
+        this.readReplicaRouting = readReplicaRouting;
+        this.objectMapper = objectMapper;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        
+        // No queue: an export either starts now or is rejected, callers retry later
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * Run an export on the export pool.
+     *
+     * @throws RejectedExecutionException if max-concurrent exports are already running
+     */
+    public Future<?> submit(Runnable export) {
+        return executor.submit(export);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Decode a cursor token; null or empty starts from the beginning.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public Position parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new Position("", 0, true);
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export cursor");
+        }
+        if (decoded.startsWith(SESSION_CURSOR) && decoded.length() > SESSION_CURSOR.length()) {
+            return new Position(decoded.substring(SESSION_CURSOR.length()), 0, true);
+        }
+        if (decoded.startsWith(MESSAGE_CURSOR)) {
+            try {
+                return new Position("", Long.parseLong(decoded.substring(MESSAGE_CURSOR.length())), false);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid export cursor");
+            }
+        }
+        throw new IllegalArgumentException("Invalid export cursor");
+    }
+    
+    /**
+     * Write the export for a user from the given position. Runs in one read-only
+     * transaction, on the replica when one is configured.
+     */
+    public void export(String userId, Position from, OutputStream out) {
+        long started = System.currentTimeMillis();
+        long[] counts = new long[2];
+        readReplicaRouting.read(userId, () -> readTransaction.execute(status -> {
+            try {
+                if (from.isSessionsPending()) {
+                    try (Stream<ChatSession> sessions = sessionRepository.streamByUserAfterSessionId(
+                            userId, from.getAfterSessionId())) {
+                        Iterator<ChatSession> iterator = sessions.iterator();
+                        while (iterator.hasNext()) {
+                            ChatSession session = iterator.next();
+                            write(out, new ExportRecord(ExportRecord.Type.SESSION,
+                                    encode(SESSION_CURSOR + session.getSessionId()), session, null));
+                            entityManager.detach(session);
+                            counts[0]++;
+                        }
+                    }
+                }
+                try (Stream<ChatMessage> messages = messageRepository.streamByUserAfterId(
+                        userId, from.getAfterMessageId())) {
+                    Iterator<ChatMessage> iterator = messages.iterator();
+                    while (iterator.hasNext()) {
+                        ChatMessage message = iterator.next();
+                        write(out, new ExportRecord(ExportRecord.Type.MESSAGE,
+                                encode(MESSAGE_CURSOR + message.getId()), null, message));
+                        entityManager.detach(message);
+                        counts[1]++;
+                    }
+                }
+                write(out, new ExportRecord(ExportRecord.Type.END, null, null, null));
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        log.info("event=chat.export userId={} sessions={} messages={} durationMs={}",
+                userId, counts[0], counts[1], System.currentTimeMillis() - started);
+    }
+    
+    private void write(OutputStream out, ExportRecord record) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(record));
+        out.write('\n');
+    }
+    
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Where an export starts: after a session (sessions still pending, then all
+     * messages), or after a message id once all sessions have been written.
+     */
+    public static final class Position {
+        
+        private final String afterSessionId;
+        private final long afterMessageId;
+        private final boolean sessionsPending;
+        
+        private Position(String afterSessionId, long afterMessageId, boolean sessionsPending) {
+            this.afterSessionId = afterSessionId;
+            this.afterMessageId = afterMessageId;
+            this.sessionsPending = sessionsPending;
+        }
+        
+        public String getAfterSessionId() {
+            return afterSessionId;
+        }
+        
+        public long getAfterMessageId() {
+            return afterMessageId;
+        }
+        
+        public boolean isSessionsPending() {
+            return sessionsPending;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.chatbot.service;
+
+import com.chatbot.model.dto.ChatJob;
+import com.chatbot.model.dto.ChatRequest;
+import com.chatbot.model.dto.ChatResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous chat jobs for callers that cannot hold a connection open for a
+ * full completion.
+ *
+ * Jobs run on a bounded worker pool; when its queue is full submission is
+ * rejected rather than piling up work the provider cannot serve. Finished jobs
+ * are retained for result-ttl-minutes so callers can long-poll for them.
+ *
+ * Every state change is also published to the {@link SessionStore}, so with a
+ * shared store any node can answer a poll. Long-polls only wait for completion
+ * on the node running the job; elsewhere they return the stored state when the
+ * wait times out.
+ */
+@Service
+@Slf4j
+public class ChatJobService {
+
+    public static final String JOB_NAMESPACE = "jobs";
+
+    private static final TypeReference<StoredJob> STORED_JOB_TYPE = new TypeReference<StoredJob>() {};
+
+    private final ChatService chatService;
+    private final SessionStore sessionStore;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final Counter submitted;
+    private final Counter rejected;
+    private final Counter completed;
+    private final Counter failed;
+    private final Timer queueWait;
+
+    @Value("${chat.jobs.result-ttl-minutes:15}")
+    private long resultTtlMinutes;
+
+    public ChatJobService(ChatService chatService,
+                          SessionStore sessionStore,
+                          MeterRegistry meterRegistry,
+                          @Value("${chat.jobs.workers:8}") int workers,
+                          @Value("${chat.jobs.queue-capacity:200}") int queueCapacity) {
+        this.chatService = chatService;
+        this.sessionStore = sessionStore;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.submitted = meterRegistry.counter("chat.jobs.submitted");
+        this.rejected = meterRegistry.counter("chat.jobs.rejected");
+        this.completed = meterRegistry.counter("chat.jobs.completed");
+        this.failed = meterRegistry.counter("chat.jobs.failed");
+        this.queueWait = meterRegistry.timer("chat.jobs.queue.wait");
+        meterRegistry.gauge("chat.jobs.queued", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("chat.jobs.active", executor, ThreadPoolExecutor::getActiveCount);
+        meterRegistry.gauge("chat.jobs.retained", jobs, Map::size);
+    }
+
+    /**
+     * Enqueue a chat request.
+     *
+     * @throws RejectedExecutionException if the worker queue is full
+     */
+    public ChatJob submit(ChatRequest request) {
+        Job job = new Job(UUID.randomUUID().toString(), request.getUserId());
+        jobs.put(job.id, job);
+        // Published before the worker can start, so QUEUED never overwrites RUNNING or COMPLETED
+        publish(job);
+        try {
+            executor.execute(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            sessionStore.evict(JOB_NAMESPACE, job.id);
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return job.snapshot();
+    }
+
+    /**
+     * Look up a job owned by the given user.
+     */
+    public Optional<ChatJob> getJob(String jobId, String userId) {
+        Optional<ChatJob> local = findJob(jobId, userId).map(Job::snapshot);
+        if (local.isPresent()) {
+            return local;
+        }
+        // Submitted on another node
+        return sessionStore.get(JOB_NAMESPACE, jobId, STORED_JOB_TYPE)
+                .filter(stored -> stored.getUserId() == null || stored.getUserId().equals(userId))
+                .map(StoredJob::getJob);
+    }
+
+    /**
+     * Future completing with the job's final state, for long-polling.
+     */
+    public Optional<CompletableFuture<ChatJob>> awaitJob(String jobId, String userId) {
+        return findJob(jobId, userId).map(job -> job.done.thenApply(ignored -> job.snapshot()));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(resultTtlMinutes);
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Optional<Job> findJob(String jobId, String userId) {
+        Job job = jobs.get(jobId);
+        if (job == null || (job.userId != null && !job.userId.equals(userId))) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    private void run(Job job, ChatRequest request) {
+        job.startedAt = LocalDateTime.now();
+        job.status = ChatJob.Status.RUNNING;
+        queueWait.record(Duration.between(job.createdAt, job.startedAt));
+        publish(job);
+        try {
+            ChatResponse response = chatService.processMessage(request);
+            job.result = response;
+            job.status = response.isSuccess() ? ChatJob.Status.COMPLETED : ChatJob.Status.FAILED;
+            job.error = response.getError();
+        } catch (Exception e) {
+            log.error("Chat job {} failed: {}", job.id, e.getMessage(), e);
+            job.status = ChatJob.Status.FAILED;
+            job.error = e.getMessage();
+        }
+        job.completedAt = LocalDateTime.now();
+        (job.status == ChatJob.Status.COMPLETED ? completed : failed).increment();
+        publish(job);
+        job.done.complete(null);
+    }
+
+    private void publish(Job job) {
+        try {
+            sessionStore.put(JOB_NAMESPACE, job.id, new StoredJob(job.userId, job.snapshot()),
+                    Duration.ofMinutes(resultTtlMinutes));
+        } catch (Exception e) {
+            // Polls on this node still work from local state
+            log.warn("Error publishing chat job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Job state as published to the session store, with its owner for access checks.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StoredJob {
+        private String userId;
+        private ChatJob job;
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String userId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile ChatJob.Status status = ChatJob.Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile ChatResponse result;
+        private volatile String error;
+
+        private Job(String id, String userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        private ChatJob snapshot() {
+            return ChatJob.builder()
+                    .jobId(id)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .completedAt(completedAt)
+                    .result(result)
+                    .error(error)
+                    .build();
+        }
+    }
+}
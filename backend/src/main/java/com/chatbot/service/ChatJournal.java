@@ -0,0 +1,381 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.repository.ChatMessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped journal for chat exchanges.
+ *
+ * Exchanges are appended to fixed-size segment files and acknowledged once the
+ * segment has been forced to disk. Concurrent appenders share a single force
+ * (group commit). A scheduled drainer seals the active segment, replays every
+ * sealed segment into {@link ChatMessageRepository} in bulk and deletes it.
+ * Segments left behind by a crash are replayed on startup. Every record carries
+ * a journal id and replay skips ids already stored, so a segment replayed twice,
+ * e.g. after a crash between saving and deleting it, writes each exchange once.
+ * One drain runs at a time; a scheduled drain finding another still running
+ * skips its turn.
+ *
+ * Locks are explicit rather than monitors: forcing a segment blocks on disk I/O,
+ * and a virtual thread blocked inside a synchronized block pins its carrier.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatJournal {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8; // length + crc32
+
+    private final ChatMessageRepository messageRepository;
+    private final ObjectMapper objectMapper;
+    private final ChatSearchIndex searchIndex;
+
+    @Value("${chat.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.journal.directory:./data/journal}")
+    private String directory;
+
+    @Value("${chat.journal.segment-size-bytes:16777216}")
+    private int segmentSize;
+
+    @Value("${chat.journal.fsync:true}")
+    private boolean fsync;
+
+    @Value("${chat.journal.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    private Path journalDir;
+    private Segment active;
+    private long nextSegmentId;
+
+    private final ReentrantLock segmentLock = new ReentrantLock(); // Active segment and sequence numbers
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final ReentrantLock drainLock = new ReentrantLock(); // Sealed segments are replayed and deleted by one drain at a time
+    private long writtenSeq;
+    private long durableSeq;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+
+        List<Path> existing = listSegments();
+        if (!existing.isEmpty()) {
+            log.info("Replaying {} journal segment(s) left from previous run", existing.size());
+            nextSegmentId = segmentId(existing.get(existing.size() - 1)) + 1;
+            drainLock.lock();
+            try {
+                drainSegments(existing);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        segmentLock.lock();
+        try {
+            active = openSegment(nextSegmentId++);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append an exchange and block until it is durable.
+     */
+    public void append(ChatMessage message) throws IOException {
+        appendAll(Collections.singletonList(message));
+    }
+
+    /**
+     * Append several exchanges and block until all of them are durable, with a
+     * single force.
+     */
+    public void appendAll(List<ChatMessage> messages) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(messages.size());
+        List<Integer> checksums = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            if (message.getJournalId() == null) {
+                message.setJournalId(UUID.randomUUID().toString());
+            }
+            byte[] payload = objectMapper.writeValueAsBytes(message);
+            if (RECORD_HEADER_BYTES + payload.length + 4 > segmentSize) {
+                throw new IOException("Journal record of " + payload.length + " bytes exceeds segment size");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            payloads.add(payload);
+            checksums.add((int) crc.getValue());
+        }
+
+        long seq;
+        segmentLock.lock();
+        try {
+            for (int i = 0; i < payloads.size(); i++) {
+                byte[] payload = payloads.get(i);
+                if (active.buffer.remaining() < RECORD_HEADER_BYTES + payload.length + 4) {
+                    rollSegment();
+                }
+                active.buffer.putInt(payload.length);
+                active.buffer.putInt(checksums.get(i));
+                active.buffer.put(payload);
+            }
+            seq = ++writtenSeq;
+        } finally {
+            segmentLock.unlock();
+        }
+        appended.addAndGet(payloads.size());
+        commit(seq);
+    }
+
+    /**
+     * Seal the active segment and replay all sealed segments into the database.
+     */
+    @Scheduled(fixedDelayString = "${chat.journal.drain-interval-ms:1000}")
+    public void drain() {
+        if (!enabled || !drainLock.tryLock()) {
+            return; // The previous drain is still running
+        }
+        try {
+            drainSealed();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainSealed() {
+        try {
+            long activeId;
+            segmentLock.lock();
+            try {
+                if (active.buffer.position() > 0) {
+                    rollSegment();
+                }
+                activeId = active.id;
+            } finally {
+                segmentLock.unlock();
+            }
+            // Appends may roll to newer segments once the lock is released; only older ones are sealed
+            List<Path> sealed = listSegments();
+            sealed.removeIf(path -> segmentId(path) >= activeId);
+            drainSegments(sealed);
+        } catch (IOException e) {
+            log.error("Error draining chat journal: {}", e.getMessage(), e);
+        }
+    }
+
+    public long getAppendedCount() {
+        return appended.get();
+    }
+
+    public long getDrainedCount() {
+        return drained.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        drainLock.lock(); // Waits for a scheduled drain still running
+        try {
+            drainSealed();
+        } finally {
+            drainLock.unlock();
+        }
+        segmentLock.lock();
+        try {
+            closeQuietly(active);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private void commit(long seq) throws IOException {
+        if (!fsync) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            if (durableSeq >= seq) {
+                return; // covered by another appender's force
+            }
+            long target;
+            Segment segment;
+            segmentLock.lock();
+            try {
+                target = writtenSeq;
+                segment = active;
+            } finally {
+                segmentLock.unlock();
+            }
+            segment.buffer.force();
+            durableSeq = target;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        Segment previous = active;
+        if (previous.buffer.remaining() >= 4) {
+            previous.buffer.putInt(0); // end-of-segment marker
+        }
+        previous.buffer.force();
+        closeQuietly(previous);
+        active = openSegment(nextSegmentId++);
+    }
+
+    private void drainSegments(List<Path> segments) throws IOException {
+        for (Path path : segments) {
+            List<ChatMessage> batch = new ArrayList<>(drainBatchSize);
+            int replayed = 0;
+            for (ChatMessage message : readSegment(path)) {
+                batch.add(message);
+                if (batch.size() >= drainBatchSize) {
+                    replayed += replay(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                replayed += replay(batch);
+            }
+            Files.deleteIfExists(path);
+            drained.addAndGet(replayed);
+            log.debug("Drained {} exchange(s) from journal segment {}", replayed, path.getFileName());
+        }
+    }
+
+    /**
+     * Save the records of a batch that are not stored yet.
+     *
+     * @return the number of records saved
+     */
+    private int replay(List<ChatMessage> batch) {
+        List<String> journalIds = batch.stream()
+                .map(ChatMessage::getJournalId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Set<String> stored = journalIds.isEmpty()
+                ? Collections.emptySet() : new HashSet<>(messageRepository.findJournalIds(journalIds));
+        List<ChatMessage> pending = batch.stream()
+                .filter(message -> message.getJournalId() == null || !stored.contains(message.getJournalId()))
+                .collect(Collectors.toList());
+        if (pending.size() < batch.size()) {
+            log.info("Skipping {} journal record(s) already stored", batch.size() - pending.size());
+        }
+        if (!pending.isEmpty()) {
+            searchIndex.index(messageRepository.saveAll(pending));
+        }
+        return pending.size();
+    }
+
+    private List<ChatMessage> readSegment(Path path) throws IOException {
+        List<ChatMessage> messages = new ArrayList<>();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 4) {
+                break; // end marker, zero fill or torn write
+            }
+            int expectedCrc = buffer.getInt();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Checksum mismatch in journal segment {}, skipping remainder", path.getFileName());
+                break;
+            }
+            messages.add(objectMapper.readValue(payload, ChatMessage.class));
+        }
+        return messages;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = journalDir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(id, channel, buffer);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort((a, b) -> Long.compare(segmentId(a), segmentId(b)));
+        return segments;
+    }
+
+    private long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("Error closing journal segment {}: {}", segment.id, e.getMessage());
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long id, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
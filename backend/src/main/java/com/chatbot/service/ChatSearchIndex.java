@@ -0,0 +1,364 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.dto.SearchResult;
+import com.chatbot.model.repository.ChatMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index over chat messages and responses, kept on local disk.
+ *
+ * Saved and deleted messages are applied after their transaction commits and
+ * become searchable at the next refresh. Each index commit records a low-water
+ * mark: the message id up to which every row in the database is indexed. Only
+ * the catch-up scan moves it, and only past rows older than settle-ms, so rows
+ * whose ids were assigned before a slower transaction committed are not skipped.
+ * The scan runs in the background on startup and then periodically from the
+ * mark; live indexing never moves it. The whole index can be rebuilt from the
+ * database. Queries support bare terms and quoted phrases, scoped by user and
+ * session.
+ */
+@Component
+@Slf4j
+public class ChatSearchIndex {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_SESSION = "sessionId";
+    private static final String FIELD_USER = "userId";
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_RESPONSE = "response";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final String COMMIT_INDEXED_THROUGH = "indexedThroughId";
+    private static final Pattern QUERY_TOKEN = Pattern.compile("\"([^\"]+)\"|(\\S+)");
+
+    private final ChatMessageRepository messageRepository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+    private final AtomicLong indexedThrough = new AtomicLong(); // Every message id up to this one is indexed
+    private final AtomicBoolean catchingUp = new AtomicBoolean();
+
+    @Value("${chat.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.search.directory:./data/search-index}")
+    private String directory;
+
+    @Value("${chat.search.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${chat.search.catch-up-batch-size:1000}")
+    private int catchUpBatchSize;
+
+    @Value("${chat.search.settle-ms:60000}")
+    private long settleMillis;
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    public ChatSearchIndex(ChatMessageRepository messageRepository) {
+        this.messageRepository = messageRepository;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(FSDirectory.open(Paths.get(directory)), config);
+        searcherManager = new SearcherManager(writer, null);
+
+        if (rebuildOnStartup) {
+            writer.deleteAll();
+        } else if (writer.getLiveCommitData() != null) {
+            for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+                if (COMMIT_INDEXED_THROUGH.equals(entry.getKey())) {
+                    indexedThrough.set(Long.parseLong(entry.getValue()));
+                }
+            }
+            // An index ahead of the database belongs to an earlier database, e.g. an in-memory one
+            Long maxId = messageRepository.findMaxId();
+            if (datasourceUrl.contains(":mem:") || indexedThrough.get() > (maxId != null ? maxId : 0L)) {
+                log.info("Search index is ahead of the database (indexed up to {}, database at {}), rebuilding",
+                        indexedThrough.get(), maxId);
+                writer.deleteAll();
+                indexedThrough.set(0);
+            }
+        }
+        CompletableFuture.runAsync(this::catchUp);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Index saved messages once the current transaction (if any) commits.
+     */
+    public void index(Collection<ChatMessage> messages) {
+        if (!enabled || messages.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> snapshot = new ArrayList<>(messages);
+        afterCommit(() -> {
+            for (ChatMessage message : snapshot) {
+                if (message.getId() != null) {
+                    writer.updateDocument(new Term(FIELD_ID, message.getId().toString()), toDocument(message));
+                }
+            }
+        });
+    }
+
+    public void deleteMessages(Collection<Long> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        Term[] terms = ids.stream().map(id -> new Term(FIELD_ID, id.toString())).toArray(Term[]::new);
+        afterCommit(() -> writer.deleteDocuments(terms));
+    }
+
+    public void deleteSessions(Collection<String> sessionIds) {
+        if (!enabled || sessionIds.isEmpty()) {
+            return;
+        }
+        Term[] terms = sessionIds.stream().map(id -> new Term(FIELD_SESSION, id)).toArray(Term[]::new);
+        afterCommit(() -> writer.deleteDocuments(terms));
+    }
+
+    /**
+     * Search messages and responses. userId and sessionId are optional filters.
+     */
+    public SearchResult search(String queryText, String userId, String sessionId, int page, int size) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Chat search is disabled");
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean hasClause = false;
+        Matcher matcher = QUERY_TOKEN.matcher(queryText == null ? "" : queryText);
+        while (matcher.find()) {
+            String text = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            Query clause = matchEitherField(text);
+            if (clause != null) {
+                query.add(clause, BooleanClause.Occur.MUST);
+                hasClause = true;
+            }
+        }
+        if (!hasClause) {
+            query.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+        if (userId != null) {
+            query.add(new TermQuery(new Term(FIELD_USER, userId)), BooleanClause.Occur.FILTER);
+        }
+        if (sessionId != null) {
+            query.add(new TermQuery(new Term(FIELD_SESSION, sessionId)), BooleanClause.Occur.FILTER);
+        }
+
+        Sort sort = new Sort(SortField.FIELD_SCORE, new SortField(FIELD_TIMESTAMP, SortField.Type.LONG, true));
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query.build(), (page + 1) * size, sort, true);
+            List<SearchResult.Hit> hits = new ArrayList<>(size);
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            for (int i = page * size; i < scoreDocs.length; i++) {
+                Document doc = searcher.doc(scoreDocs[i].doc);
+                hits.add(SearchResult.Hit.builder()
+                        .messageId(Long.valueOf(doc.get(FIELD_ID)))
+                        .sessionId(doc.get(FIELD_SESSION))
+                        .userId(doc.get(FIELD_USER))
+                        .timestamp(LocalDateTime.ofEpochSecond(
+                                doc.getField(FIELD_TIMESTAMP).numericValue().longValue(), 0, ZoneOffset.UTC))
+                        .message(doc.get(FIELD_MESSAGE))
+                        .response(doc.get(FIELD_RESPONSE))
+                        .score(scoreDocs[i].score)
+                        .build());
+            }
+            return SearchResult.builder()
+                    .totalHits(topDocs.totalHits.value)
+                    .page(page)
+                    .size(size)
+                    .hits(hits)
+                    .build();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        if (enabled) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (enabled && writer.hasUncommittedChanges()) {
+            writer.setLiveCommitData(Collections.singletonMap(COMMIT_INDEXED_THROUGH,
+                    Long.toString(indexedThrough.get())).entrySet());
+            writer.commit();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        commit();
+        searcherManager.close();
+        writer.close();
+    }
+
+    /**
+     * Index every message after the low-water mark, in id order, and move the
+     * mark over the settled prefix. Rows newer than settle-ms are indexed but
+     * stay above the mark, so the next scan looks at them, and any lower id
+     * committed in the meantime, again.
+     */
+    @Scheduled(initialDelayString = "${chat.search.catch-up-interval-ms:60000}",
+            fixedDelayString = "${chat.search.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        if (!enabled || !catchingUp.compareAndSet(false, true)) {
+            return;
+        }
+        long afterId = indexedThrough.get();
+        long indexed = 0;
+        boolean settled = true;
+        LocalDateTime settledBefore = LocalDateTime.now().minusNanos(settleMillis * 1_000_000);
+        try {
+            while (true) {
+                List<ChatMessage> batch = messageRepository.findMessagesAfterId(
+                        afterId, PageRequest.of(0, catchUpBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ChatMessage message : batch) {
+                    writer.updateDocument(new Term(FIELD_ID, message.getId().toString()), toDocument(message));
+                    settled = settled && message.getTimestamp() != null
+                            && message.getTimestamp().isBefore(settledBefore);
+                    if (settled) {
+                        indexedThrough.set(message.getId());
+                    }
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+                indexed += batch.size();
+            }
+            if (indexed > 0) {
+                log.debug("Search index caught up with {} message(s), indexed through {}", indexed, indexedThrough.get());
+                commit();
+            }
+        } catch (Exception e) {
+            log.error("Error catching up search index: {}", e.getMessage(), e);
+        } finally {
+            catchingUp.set(false);
+        }
+    }
+
+    private Query matchEitherField(String text) {
+        Query inMessage = queryBuilder.createPhraseQuery(FIELD_MESSAGE, text);
+        Query inResponse = queryBuilder.createPhraseQuery(FIELD_RESPONSE, text);
+        if (inMessage == null || inResponse == null) {
+            return null; // Only stop characters
+        }
+        return new BooleanQuery.Builder()
+                .add(inMessage, BooleanClause.Occur.SHOULD)
+                .add(inResponse, BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    private Document toDocument(ChatMessage message) {
+        long epochSecond = message.getTimestamp() != null
+                ? message.getTimestamp().toEpochSecond(ZoneOffset.UTC) : 0L;
+
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, message.getId().toString(), Field.Store.YES));
+        doc.add(new StringField(FIELD_SESSION, message.getSessionId(), Field.Store.YES));
+        doc.add(new StringField(FIELD_USER, message.getUserId(), Field.Store.YES));
+        doc.add(new TextField(FIELD_MESSAGE, nullToEmpty(message.getMessage()), Field.Store.YES));
+        doc.add(new TextField(FIELD_RESPONSE, nullToEmpty(message.getResponse()), Field.Store.YES));
+        doc.add(new NumericDocValuesField(FIELD_TIMESTAMP, epochSecond));
+        doc.add(new StoredField(FIELD_TIMESTAMP, epochSecond));
+        return doc;
+    }
+
+    private String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private void afterCommit(IndexAction action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(action);
+                }
+            });
+        } else {
+            apply(action);
+        }
+    }
+
+    private void apply(IndexAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            log.error("Error updating search index: {}", e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexAction {
+        void run() throws IOException;
+    }
+}
@@ -4,95 +4,263 @@ import com.chatbot.model.ChatMessage;
 import com.chatbot.model.ChatSession;
 import com.chatbot.model.dto.ChatRequest;
 import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.ChatStreamEvent;
+import com.chatbot.model.dto.ContextDelta;
+import com.chatbot.model.dto.SearchResult;
+import com.chatbot.model.dto.SessionSummary;
 import com.chatbot.model.repository.ChatMessageRepository;
 import com.chatbot.model.repository.ChatSessionRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatService {
     
+    public static final String CONTEXT_VERSION_CONFLICT = "CONTEXT_VERSION_CONFLICT";
+    public static final String TOKEN_QUOTA_EXCEEDED = "TOKEN_QUOTA_EXCEEDED";
+    public static final String HISTORY_NAMESPACE = "history";
+    
+    private static final TypeReference<HistoryWindow> HISTORY_TYPE = new TypeReference<HistoryWindow>() {};
+    
     private final ChatMessageRepository messageRepository;
     private final ChatSessionRepository sessionRepository;
     private final AIService aiService;
     private final ObjectMapper objectMapper;
+    private final ChatJournal chatJournal;
+    private final ConversationCompactor conversationCompactor;
+    private final ChatSearchIndex searchIndex;
+    private final ResponseSerializer responseSerializer;
+    private final SessionStore sessionStore;
+    private final ReadReplicaRouting readReplicaRouting;
+    private final TokenUsageTracker usageTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final SpeculativeAnswers speculativeAnswers;
+    private final EntityManager entityManager;
+    
+    @Value("${chat.session-store.history-ttl-minutes:5}")
+    private long historyTtlMinutes;
+    
+    @Value("${chat.session-store.history-max-turns:20}")
+    private int historyMaxTurns;
     
-    @Transactional
     public ChatResponse processMessage(ChatRequest request) {
+        return processMessage(request, null);
+    }
+    
+    /**
+     * Process a message, reporting structured content to the listener while the
+     * answer is still being generated.
+     *
+     * Preparation and recording run in transactions of their own and the upstream
+     * call in between runs outside any, so a pooled database connection is only held
+     * for the queries and not for the whole completion.
+     */
+    public ChatResponse processMessage(ChatRequest request, Consumer<ChatStreamEvent> updates) {
+        long started = System.nanoTime();
+        speculativeAnswers.foregroundStarted();
         try {
-            // Get or create session
-            ChatSession session = getOrCreateSession(request);
-            
-            // Get conversation history
-            List<String> history = getConversationHistory(session.getSessionId());
-            
-            // Process message with AI service
-            ChatResponse response = aiService.processMessage(request, history);
+            ChatExchange exchange = transactionTemplate.execute(status -> prepareExchange(request));
+            if (exchange.getResponse() != null) {
+                return exchange.getResponse();
+            }
             
-            // Save message and response
-            saveMessageExchange(request, response, session);
+            // A suggested follow-up answered ahead of time skips the upstream call
+            Optional<ChatResponse> speculated = speculativeAnswers.take(exchange.getSession(), request);
+            speculated.ifPresent(exchange::setResponse);
+            ChatResponse response = speculated.isPresent() ? speculated.get() : generateResponse(exchange, updates);
             
-            // Update session activity
-            updateSessionActivity(session);
+            // Save message and response, update session activity
+            transactionTemplate.executeWithoutResult(status -> recordExchanges(Collections.singletonList(exchange)));
+            speculativeAnswers.speculate(exchange);
             
+            log.info("event=chat.exchange sessionId={} format={} success={} speculative={} durationMs={}",
+                    response.getSessionId(), response.getResponseFormat(), response.isSuccess(),
+                    speculated.isPresent(), (System.nanoTime() - started) / 1_000_000);
             return response;
             
         } catch (Exception e) {
-            log.error("Error processing chat message: {}", e.getMessage(), e);
-            return ChatResponse.builder()
-                    .sessionId(request.getSessionId())
-                    .message("I apologize, but I encountered an error. Please try again.")
-                    .responseFormat(ChatMessage.ResponseFormat.TEXT)
-                    .success(false)
-                    .error(e.getMessage())
-                    .build();
+            log.error("event=chat.exchange.error sessionId={} durationMs={} error={}",
+                    request.getSessionId(), (System.nanoTime() - started) / 1_000_000, e.getMessage(), e);
+            return errorResponse(request, e);
+        } finally {
+            speculativeAnswers.foregroundFinished();
+        }
+    }
+    
+    /**
+     * Resolve session, context and history for a request. If the request cannot
+     * proceed the returned exchange already carries its response.
+     */
+    @Transactional
+    public ChatExchange prepareExchange(ChatRequest request) {
+        return prepareExchange(request, false);
+    }
+    
+    /**
+     * Prepare an exchange for the startup warm-up. Only touches the database, in
+     * the caller's transaction: no quota check and no history window cached in
+     * the session store.
+     */
+    public ChatExchange prepareWarmUpExchange(ChatRequest request) {
+        return prepareExchange(request, true);
+    }
+    
+    private ChatExchange prepareExchange(ChatRequest request, boolean warmUp) {
+        // Get or create session
+        ChatSession session = getOrCreateSession(request);
+        ChatExchange exchange = new ChatExchange(request, session);
+        
+        // Enforce the daily token quota before any upstream work
+        TokenUsageTracker.Decision quota = warmUp ? TokenUsageTracker.Decision.ALLOW
+                : usageTracker.check(session.getUserId());
+        if (quota == TokenUsageTracker.Decision.REJECT) {
+            exchange.setResponse(quotaExceededResponse(session));
+            return exchange;
+        }
+        if (quota == TokenUsageTracker.Decision.DOWNGRADE) {
+            exchange.setModel(usageTracker.getDowngradeModel());
+        }
+        
+        // Apply full context or delta; re-renders the context block only when it changed
+        if (!applyContextUpdate(session, request)) {
+            exchange.setResponse(contextConflictResponse(session));
+            return exchange;
+        }
+        
+        // Get conversation history
+        exchange.setHistory(getConversationHistory(session, !warmUp));
+        return exchange;
+    }
+    
+    /**
+     * Call the AI service for a prepared exchange. Does not touch the database.
+     */
+    public ChatResponse generateResponse(ChatExchange exchange) {
+        return generateResponse(exchange, null);
+    }
+    
+    public ChatResponse generateResponse(ChatExchange exchange, Consumer<ChatStreamEvent> updates) {
+        ChatSession session = exchange.getSession();
+        ChatResponse response = aiService.processMessage(exchange.getRequest(), exchange.getHistory(),
+                session.getRenderedContext(), exchange.getModel(), updates);
+        usageTracker.record(session.getUserId(), response.getUsage());
+        response.setSessionId(session.getSessionId());
+        response.setContextVersion(session.getContextVersion());
+        exchange.setResponse(response);
+        return response;
+    }
+    
+    /**
+     * Persist generated exchanges in one write and update their sessions.
+     */
+    @Transactional
+    public void recordExchanges(List<ChatExchange> exchanges) {
+        saveMessageExchanges(exchanges);
+        
+        for (ChatExchange exchange : exchanges) {
+            ChatSession session = exchange.getSession();
+            
+            // Update session activity and summary counters
+            updateSessionActivity(session, exchange.getRequest());
+            appendToHistoryWindow(session, exchange);
+            readReplicaRouting.recordWrite(session.getSessionId(), session.getUserId());
+            
+            // Summarize older turns in the background once the session grows long
+            conversationCompactor.requestCompaction(session.getSessionId(), session.getUncompactedCount() + 1);
         }
     }
     
+    public ChatResponse errorResponse(ChatRequest request, Exception e) {
+        return ChatResponse.builder()
+                .sessionId(request != null ? request.getSessionId() : null)
+                .message("I apologize, but I encountered an error. Please try again.")
+                .responseFormat(ChatMessage.ResponseFormat.TEXT)
+                .success(false)
+                .error(e.getMessage())
+                .build();
+    }
+    
+    @Transactional(readOnly = true)
     public List<ChatMessage> getChatHistory(String sessionId) {
-        return messageRepository.findBySessionIdOrderByTimestampAsc(sessionId);
+        return readReplicaRouting.read(sessionId, () -> messageRepository.findBySessionIdOrderByTimestampAsc(sessionId));
     }
     
+    /**
+     * Cheap version tag for a session's history: changes whenever messages are
+     * added, removed or compacted, without loading them.
+     */
+    @Transactional(readOnly = true)
+    public String getHistoryVersion(String sessionId) {
+        Object[] row = readReplicaRouting.read(sessionId, () -> messageRepository.findHistoryVersion(sessionId)).get(0);
+        return row[0] + "-" + row[1] + "-" + row[2];
+    }
+    
+    @Transactional(readOnly = true)
     public List<ChatSession> getUserSessions(String userId) {
-        return sessionRepository.findByUserIdAndActiveTrue(userId);
+        return readReplicaRouting.read(userId, () -> sessionRepository.findByUserIdAndActiveTrue(userId));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<SessionSummary> getUserSessionSummaries(String userId, int page, int size) {
+        return readReplicaRouting.read(userId,
+                () -> sessionRepository.findActiveSessionSummariesByUser(userId, PageRequest.of(page, size)));
+    }
+    
+    public SearchResult searchMessages(String query, String userId, String sessionId, int page, int size) throws IOException {
+        return searchIndex.search(query, userId, sessionId, page, size);
     }
     
     @Transactional
     public void endSession(String sessionId) {
         sessionRepository.deactivateSession(sessionId);
+        speculativeAnswers.discard(sessionId);
+        readReplicaRouting.recordWrite(sessionId);
     }
     
     @Transactional
     public void clearHistory(String sessionId) {
         messageRepository.deleteBySessionId(sessionId);
-    }
-    
-    @Transactional
-    public void cleanupOldSessions() {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(7);
-        sessionRepository.deactivateInactiveSessions(cutoff);
-        
-        LocalDateTime deleteCutoff = LocalDateTime.now().minusDays(30);
-        sessionRepository.deleteByLastActivityBefore(deleteCutoff);
+        sessionRepository.resetHistoryState(sessionId);
+        searchIndex.deleteSessions(Collections.singletonList(sessionId));
+        sessionStore.evict(HISTORY_NAMESPACE, sessionId);
+        speculativeAnswers.discard(sessionId);
+        readReplicaRouting.recordWrite(sessionId);
     }
     
     private ChatSession getOrCreateSession(ChatRequest request) {
         String sessionId = request.getSessionId();
         
         if (sessionId != null) {
-            Optional<ChatSession> existingSession = sessionRepository.findBySessionIdAndActiveTrue(sessionId);
+            // Another user's session id starts a new session, it must not share their history or quota
+            Optional<ChatSession> existingSession = sessionRepository.findBySessionIdAndActiveTrue(sessionId)
+                    .filter(session -> Objects.equals(session.getUserId(), request.getUserId()));
             if (existingSession.isPresent()) {
                 return existingSession.get();
             }
@@ -103,51 +271,228 @@ public class ChatService {
         ChatSession newSession = ChatSession.builder()
                 .sessionId(sessionId)
                 .userId(request.getUserId())
-                .context(serializeContext(request))
                 .build();
         
         return sessionRepository.save(newSession);
     }
     
-    private List<String> getConversationHistory(String sessionId) {
-        List<ChatMessage> messages = messageRepository.findRecentMessagesBySession(
-                sessionId, LocalDateTime.now().minusHours(24));
+    private List<String> getConversationHistory(ChatSession session, boolean cache) {
+        // The window is cached in the session store so follow-up turns skip the history query
+        Optional<HistoryWindow> cached = cache
+                ? sessionStore.get(HISTORY_NAMESPACE, session.getSessionId(), HISTORY_TYPE) : Optional.empty();
+        if (cached.isPresent()) {
+            return cached.get().toHistory();
+        }
+        
+        List<ChatMessage> messages = messageRepository.findRecentUncompactedMessagesBySession(
+                session.getSessionId(), LocalDateTime.now().minusHours(24));
         
-        return messages.stream()
+        List<String> turns = new ArrayList<>(messages.size());
+        messages.stream()
                 .map(msg -> String.format("User: %s\nAssistant: %s", msg.getMessage(), msg.getResponse()))
-                .collect(Collectors.toList());
+                .forEach(turns::add);
+        Duration ttl = Duration.ofMinutes(historyTtlMinutes);
+        HistoryWindow window = new HistoryWindow(session.getSummary(), lastTurns(turns),
+                System.currentTimeMillis() + ttl.toMillis());
+        if (cache) {
+            sessionStore.put(HISTORY_NAMESPACE, session.getSessionId(), window, ttl);
+        }
+        return window.toHistory();
     }
     
-    private void saveMessageExchange(ChatRequest request, ChatResponse response, ChatSession session) {
+    private void appendToHistoryWindow(ChatSession session, ChatExchange exchange) {
+        String sessionId = session.getSessionId();
+        sessionStore.get(HISTORY_NAMESPACE, sessionId, HISTORY_TYPE).ifPresent(cached -> {
+            // Keep the loaded window's expiry, so an active session still re-reads the database every ttl
+            long remainingMillis = cached.getExpiresAt() - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                return;
+            }
+            List<String> turns = new ArrayList<>(cached.getTurns());
+            turns.add(String.format("User: %s\nAssistant: %s",
+                    exchange.getRequest().getMessage(), exchange.getResponse().getMessage()));
+            sessionStore.put(HISTORY_NAMESPACE, sessionId,
+                    new HistoryWindow(cached.getSummary(), lastTurns(turns), cached.getExpiresAt()),
+                    Duration.ofMillis(remainingMillis));
+        });
+    }
+    
+    private List<String> lastTurns(List<String> turns) {
+        return turns.size() <= historyMaxTurns ? turns
+                : new ArrayList<>(turns.subList(turns.size() - historyMaxTurns, turns.size()));
+    }
+    
+    private void saveMessageExchanges(List<ChatExchange> exchanges) {
+        List<ChatMessage> messages = new ArrayList<>(exchanges.size());
+        for (ChatExchange exchange : exchanges) {
+            ChatRequest request = exchange.getRequest();
+            ChatResponse response = exchange.getResponse();
+            ChatSession session = exchange.getSession();
+            try {
+                messages.add(ChatMessage.builder()
+                        .sessionId(session.getSessionId())
+                        .userId(session.getUserId())
+                        .message(request.getMessage())
+                        .response(response.getMessage())
+                        .messageType(ChatMessage.MessageType.USER_QUERY)
+                        .responseFormat(response.getResponseFormat())
+                        .metadata(responseSerializer.serialize(response).metadataJson())
+                        .timestamp(LocalDateTime.now())
+                        .build());
+            } catch (IOException e) {
+                log.error("Error serializing chat response: {}", e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        
+        if (!chatJournal.isEnabled()) {
+            searchIndex.index(messageRepository.saveAll(messages));
+            return;
+        }
+        
         try {
-            ChatMessage message = ChatMessage.builder()
-                    .sessionId(session.getSessionId())
-                    .userId(session.getUserId())
-                    .message(request.getMessage())
-                    .response(response.getMessage())
-                    .messageType(ChatMessage.MessageType.USER_QUERY)
-                    .responseFormat(response.getResponseFormat())
-                    .metadata(objectMapper.writeValueAsString(response.getMetadata()))
-                    .build();
-            
-            messageRepository.save(message);
-            
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing message metadata: {}", e.getMessage());
+            // Acknowledged once durable on local disk; drained to the database in bulk
+            chatJournal.appendAll(messages);
+        } catch (IOException e) {
+            log.error("Error appending messages to journal, writing through: {}", e.getMessage());
+            searchIndex.index(messageRepository.saveAll(messages));
+        }
+    }
+    
+    private void updateSessionActivity(ChatSession session, ChatRequest request) {
+        // Atomic in-place update so concurrent exchanges on one session don't lose counts
+        sessionRepository.recordExchange(session.getSessionId(), preview(request.getMessage()), LocalDateTime.now());
+    }
+    
+    static String preview(String message) {
+        if (message == null || message.length() <= ChatSession.PREVIEW_LENGTH) {
+            return message;
+        }
+        return message.substring(0, ChatSession.PREVIEW_LENGTH - 3) + "...";
+    }
+    
+    /**
+     * Apply the request's full context or delta to the session. Afterwards the
+     * request carries the session's merged context, so message analysis sees it
+     * for delta-only and context-less requests too.
+     */
+    private boolean applyContextUpdate(ChatSession session, ChatRequest request) {
+        Map<String, Object> fullContext = request.getSystemContext();
+        ContextDelta delta = request.getContextDelta();
+        if (fullContext == null && (delta == null || delta.isEmpty())) {
+            if (session.getContext() != null) {
+                request.setSystemContext(deserializeContext(session.getContext()));
+            }
+            return true;
+        }
+        
+        long currentVersion = session.getContextVersion() != null ? session.getContextVersion() : 0L;
+        Map<String, Object> context;
+        if (fullContext != null) {
+            context = new LinkedHashMap<>(fullContext);
+        } else {
+            if (delta.getBaseVersion() != null && delta.getBaseVersion() != currentVersion) {
+                log.debug("Context delta for session {} based on version {}, current is {}",
+                        session.getSessionId(), delta.getBaseVersion(), currentVersion);
+                return false;
+            }
+            context = deserializeContext(session.getContext());
+            if (delta.getSet() != null) {
+                context.putAll(delta.getSet());
+            }
+            if (delta.getRemove() != null) {
+                delta.getRemove().forEach(context::remove);
+            }
+        }
+        
+        request.setSystemContext(context);
+        
+        String serialized = serializeContext(context);
+        if (serialized.equals(session.getContext())) {
+            return true; // Unchanged, keep version and rendered block
+        }
+        // Conditional on the version read above: of two concurrent updates to one version only the first applies
+        String rendered = aiService.renderContext(context);
+        if (sessionRepository.updateContext(session.getSessionId(), serialized, rendered, currentVersion) == 0) {
+            log.debug("Context of session {} changed concurrently from version {}", session.getSessionId(), currentVersion);
+            return false;
         }
+        entityManager.detach(session); // Already written, the flush must not write it again
+        session.setContext(serialized);
+        session.setContextVersion(currentVersion + 1);
+        session.setRenderedContext(rendered);
+        return true;
     }
     
-    private void updateSessionActivity(ChatSession session) {
-        session.setLastActivity(LocalDateTime.now());
-        sessionRepository.save(session);
+    private ChatResponse quotaExceededResponse(ChatSession session) {
+        return ChatResponse.builder()
+                .sessionId(session.getSessionId())
+                .message("You have reached today's usage limit. Please try again tomorrow.")
+                .responseFormat(ChatMessage.ResponseFormat.TEXT)
+                .timestamp(LocalDateTime.now())
+                .success(false)
+                .error(TOKEN_QUOTA_EXCEEDED)
+                .contextVersion(session.getContextVersion())
+                .build();
+    }
+    
+    private ChatResponse contextConflictResponse(ChatSession session) {
+        return ChatResponse.builder()
+                .sessionId(session.getSessionId())
+                .message("The session context has changed. Please resend the full context.")
+                .responseFormat(ChatMessage.ResponseFormat.TEXT)
+                .timestamp(LocalDateTime.now())
+                .success(false)
+                .error(CONTEXT_VERSION_CONFLICT)
+                .contextVersion(session.getContextVersion())
+                .build();
     }
     
-    private String serializeContext(ChatRequest request) {
+    private String serializeContext(Map<String, Object> context) {
         try {
-            return objectMapper.writeValueAsString(request.getSystemContext());
+            return objectMapper.writeValueAsString(context);
         } catch (JsonProcessingException e) {
             log.error("Error serializing session context: {}", e.getMessage());
             return "{}";
         }
     }
-}
\ No newline at end of file
+    
+    private Map<String, Object> deserializeContext(String context) {
+        if (context == null || context.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return objectMapper.readValue(context, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            log.error("Error deserializing session context: {}", e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+    
+    /**
+     * Cached prompt history of a session: the rolling summary and the most recent
+     * uncompacted turns, at most history-max-turns of them.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HistoryWindow {
+        
+        private String summary;
+        
+        private List<String> turns;
+        
+        private long expiresAt; // Epoch millis; appended turns keep the expiry of the loaded window
+        
+        public List<String> toHistory() {
+            List<String> history = new ArrayList<>(turns.size() + 1);
+            if (summary != null) {
+                history.add("Summary of earlier conversation: " + summary);
+            }
+            history.addAll(turns);
+            return history;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.chatbot.service;
+
+import com.chatbot.model.CompressionDictionary;
+import com.chatbot.model.repository.CompressionDictionaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Column-level compression for chat text.
+ *
+ * Values are raw-deflated with a preset dictionary trained from existing chat
+ * text, which is what makes short messages compressible at all, and stored as
+ * {@code \u0001Z<dictionaryId>:<base64>}. Anything without that prefix is plain
+ * text, so compressed and uncompressed rows coexist and compression can be
+ * switched on or off at any time. A value is only stored compressed when that
+ * is actually shorter.
+ */
+@Component
+@Slf4j
+public class ColumnCompression {
+
+    static final String PREFIX = "\u0001Z";
+    private static final int MAX_DICTIONARY_BYTES = 32 * 1024; // deflate window
+
+    private final ObjectProvider<CompressionDictionaryRepository> dictionaryRepository;
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private volatile int currentDictionaryId;
+
+    @Value("${chat.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.compression.min-length:64}")
+    private int minLength;
+
+    public ColumnCompression(ObjectProvider<CompressionDictionaryRepository> dictionaryRepository) {
+        // Resolved lazily: this bean is needed while the EntityManagerFactory is still being built
+        this.dictionaryRepository = dictionaryRepository;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Load stored dictionaries and use the newest one for writes.
+     */
+    public void loadDictionaries() {
+        for (CompressionDictionary dictionary : dictionaryRepository.getObject().findAll()) {
+            dictionaries.put(dictionary.getId(), dictionary.getDictionary());
+            currentDictionaryId = Math.max(currentDictionaryId, dictionary.getId());
+        }
+    }
+
+    public boolean hasDictionary() {
+        return currentDictionaryId > 0;
+    }
+
+    public String compress(String value) {
+        if (!enabled || value == null || value.length() < minLength) {
+            return value;
+        }
+        int dictionaryId = currentDictionaryId;
+        byte[] input = value.getBytes(StandardCharsets.UTF_8);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            if (dictionaryId > 0) {
+                deflater.setDictionary(dictionaries.get(dictionaryId));
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            String encoded = PREFIX + dictionaryId + ":" + Base64.getEncoder().encodeToString(out.toByteArray());
+            return encoded.length() < value.length() ? encoded : value;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public String decompress(String value) {
+        if (value == null || !value.startsWith(PREFIX)) {
+            return value;
+        }
+        int separator = value.indexOf(':', PREFIX.length());
+        if (separator < 0) {
+            return value;
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            int dictionaryId = Integer.parseInt(value.substring(PREFIX.length(), separator));
+            if (dictionaryId > 0) {
+                inflater.setDictionary(dictionary(dictionaryId));
+            }
+            byte[] compressed = Base64.getDecoder().decode(value.substring(separator + 1));
+            // Raw inflate needs one trailing dummy byte
+            byte[] input = new byte[compressed.length + 1];
+            System.arraycopy(compressed, 0, input, 0, compressed.length);
+            inflater.setInput(input);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            if (!inflater.finished()) {
+                // Ran out of input before the end of the deflate stream: truncated or corrupt
+                throw new DataFormatException("incomplete deflate stream");
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            log.warn("Value has compression prefix but could not be decoded, returning as stored: {}", e.getMessage());
+            return value;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Train a preset dictionary from sample texts and make it current. The most
+     * valuable fragments go last, where deflate finds them at the shortest distance.
+     */
+    public CompressionDictionary train(List<String> samples) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            String[] words = sample.split("\\s+");
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].length() >= 3) {
+                    frequencies.merge(words[i] + " ", 1, Integer::sum);
+                }
+                if (i + 1 < words.length) {
+                    frequencies.merge(words[i] + " " + words[i + 1] + " ", 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Integer>> fragments = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            if (entry.getValue() > 1) {
+                fragments.add(entry);
+            }
+        }
+        // Bytes saved per occurrence times occurrences, best first
+        fragments.sort(Comparator.comparingLong(
+                (Map.Entry<String, Integer> entry) -> (long) entry.getKey().length() * entry.getValue()).reversed());
+
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : fragments) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > MAX_DICTIONARY_BYTES) {
+                continue;
+            }
+            selected.add(bytes);
+            size += bytes.length;
+        }
+
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (byte[] bytes : selected) {
+            position -= bytes.length;
+            System.arraycopy(bytes, 0, dictionary, position, bytes.length);
+        }
+
+        CompressionDictionary saved = dictionaryRepository.getObject().save(CompressionDictionary.builder()
+                .dictionary(dictionary)
+                .sampleSize(samples.size())
+                .build());
+        dictionaries.put(saved.getId(), dictionary);
+        currentDictionaryId = saved.getId();
+        log.info("Trained compression dictionary {} ({} bytes) from {} sample(s)", saved.getId(), size, samples.size());
+        return saved;
+    }
+
+    private byte[] dictionary(int dictionaryId) {
+        // Dictionaries may have been trained by another node since startup
+        return dictionaries.computeIfAbsent(dictionaryId, id -> dictionaryRepository.getObject().findById(id)
+                .map(CompressionDictionary::getDictionary)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown compression dictionary " + id)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.chatbot.service;
+
+import com.chatbot.model.dto.CompressionReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Brings stored chat_messages rows in line with the current compression setting.
+ *
+ * Rows are walked in id order in chunks through plain JDBC (the entity converter
+ * would hide the stored form), decoded, re-encoded with the current dictionary
+ * and written back with one batch UPDATE per chunk. Also trains the first
+ * dictionary from recent messages when compression is enabled without one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ColumnCompressionMigration {
+
+    private final ColumnCompression compression;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${chat.compression.train-sample-size:2000}")
+    private int trainSampleSize;
+
+    @Value("${chat.compression.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${chat.compression.migration-chunk-size:500}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        compression.loadDictionaries();
+        if (compression.isEnabled() && !compression.hasDictionary()) {
+            trainDictionary();
+        }
+        if (migrateOnStartup) {
+            CompletableFuture.runAsync(this::recompress);
+        }
+    }
+
+    public void trainDictionary() {
+        List<String> samples = new ArrayList<>();
+        jdbcTemplate.query("SELECT message, response FROM chat_messages ORDER BY id DESC LIMIT ?",
+                rs -> {
+                    samples.add(compression.decompress(rs.getString(1)));
+                    samples.add(compression.decompress(rs.getString(2)));
+                }, trainSampleSize);
+        if (samples.size() < 100) {
+            log.info("Not enough chat messages to train a compression dictionary yet ({})", samples.size());
+            return;
+        }
+        compression.train(samples);
+    }
+
+    public CompressionReport recompress() {
+        long afterId = 0;
+        long scanned = 0;
+        long rewritten = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        long decompressNanos = 0;
+        long decompressed = 0;
+
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, message, response, metadata FROM chat_messages WHERE id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)},
+                    afterId, chunkSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Object[] row : rows) {
+                Object[] update = new Object[] {null, null, null, row[0]};
+                boolean changed = false;
+                for (int column = 1; column <= 3; column++) {
+                    String stored = (String) row[column];
+                    String encoded = compression.compress(compression.decompress(stored));
+                    bytesBefore += byteLength(stored);
+                    bytesAfter += byteLength(encoded);
+                    update[column - 1] = encoded;
+                    changed |= encoded != null && !encoded.equals(stored);
+
+                    long started = System.nanoTime();
+                    compression.decompress(encoded);
+                    decompressNanos += System.nanoTime() - started;
+                    decompressed++;
+                }
+                if (changed) {
+                    updates.add(update);
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE chat_messages SET message = ?, response = ?, metadata = ? WHERE id = ?", updates);
+            }
+
+            scanned += rows.size();
+            rewritten += updates.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            log.debug("Recompressed {} of {} row(s) scanned", rewritten, scanned);
+        }
+
+        CompressionReport report = CompressionReport.builder()
+                .rowsScanned(scanned)
+                .rowsRewritten(rewritten)
+                .bytesBefore(bytesBefore)
+                .bytesAfter(bytesAfter)
+                .averageDecompressMicros(decompressed > 0 ? decompressNanos / 1000.0 / decompressed : 0)
+                .build();
+        log.info("Column recompression complete: {}", report);
+        return report;
+    }
+
+    private long byteLength(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+}
@@ -0,0 +1,154 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.ChatSession;
+import com.chatbot.model.repository.ChatMessageRepository;
+import com.chatbot.model.repository.ChatSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Background compaction of long conversations.
+ *
+ * Once a session has more than trigger-turns uncompacted messages, all but the
+ * most recent keep-recent-turns are folded into the rolling summary on
+ * {@link ChatSession} and marked compacted, so prompt assembly only replays the
+ * summary plus recent turns. Compaction runs on the scheduler thread and is
+ * capped at max-per-minute summarization calls.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationCompactor {
+
+    private final ChatMessageRepository messageRepository;
+    private final ChatSessionRepository sessionRepository;
+    private final AIService aiService;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionStore sessionStore;
+    private final TokenUsageTracker usageTracker;
+    private final ReadReplicaRouting readReplicaRouting;
+
+    @Value("${chat.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.compaction.trigger-turns:20}")
+    private int triggerTurns;
+
+    @Value("${chat.compaction.keep-recent-turns:6}")
+    private int keepRecentTurns;
+
+    @Value("${chat.compaction.max-per-minute:10}")
+    private int maxPerMinute;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private long windowStart;
+    private int windowCount;
+
+    /**
+     * Request compaction of a session. Cheap enough to call on the request path.
+     */
+    public void requestCompaction(String sessionId, int uncompactedCount) {
+        if (enabled && uncompactedCount > triggerTurns) {
+            pending.add(sessionId);
+        }
+    }
+
+    /**
+     * Pick up sessions missed by hints, e.g. after a restart. Scans the whole
+     * messages table, so it runs shortly after startup and then rarely, on the
+     * read replica when one is configured.
+     */
+    @Scheduled(initialDelayString = "${chat.compaction.interval-ms:5000}",
+            fixedDelayString = "${chat.compaction.rescan-interval-ms:3600000}")
+    public void rescan() {
+        if (!enabled) {
+            return;
+        }
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readTransaction.setReadOnly(true);
+        List<String> missed = readTransaction.execute(status -> readReplicaRouting.read(null,
+                () -> messageRepository.findSessionIdsNeedingCompaction(triggerTurns, PageRequest.of(0, 100))));
+        pending.addAll(missed);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.compaction.interval-ms:5000}")
+    public void compactPending() {
+        if (!enabled) {
+            return;
+        }
+        for (String sessionId : pending) {
+            if (!acquirePermit()) {
+                return; // Budget exhausted, remaining sessions wait for the next window
+            }
+            pending.remove(sessionId);
+            try {
+                compact(sessionId);
+            } catch (Exception e) {
+                log.warn("Error compacting session {}: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    private void compact(String sessionId) {
+        List<ChatMessage> messages = messageRepository.findUncompactedMessagesBySession(sessionId);
+        if (messages.size() <= triggerTurns) {
+            return;
+        }
+        ChatSession session = sessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return;
+        }
+
+        List<ChatMessage> older = messages.subList(0, Math.max(0, messages.size() - keepRecentTurns));
+        if (older.isEmpty()) {
+            return;
+        }
+        List<String> turns = older.stream()
+                .map(msg -> String.format("User: %s\nAssistant: %s", msg.getMessage(), msg.getResponse()))
+                .collect(Collectors.toList());
+
+        // Summaries count against the owner's daily quota; over it, compaction waits for the next day
+        if (usageTracker.check(session.getUserId()) == TokenUsageTracker.Decision.REJECT) {
+            log.debug("Skipping compaction of session {}, token quota exceeded", sessionId);
+            return;
+        }
+
+        // Upstream call happens outside any transaction
+        String summary = aiService.summarizeConversation(session.getSummary(), turns,
+                usage -> usageTracker.record(session.getUserId(), usage));
+        List<Long> ids = older.stream().map(ChatMessage::getId).collect(Collectors.toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            sessionRepository.updateSummary(sessionId, summary, ids.size());
+            messageRepository.markCompacted(ids);
+        });
+        // Cached history window still replays the turns that were just summarized
+        sessionStore.evict(ChatService.HISTORY_NAMESPACE, sessionId);
+        log.debug("Compacted {} turn(s) of session {}", ids.size(), sessionId);
+    }
+
+    private boolean acquirePermit() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= 60_000) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        if (windowCount >= maxPerMinute) {
+            return false;
+        }
+        windowCount++;
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides which read-only queries may be served by the read replica.
+ *
+ * Reads are keyed by the session or user they belong to. A key that was written
+ * within the last max-lag-ms is read from the primary instead, so a client always
+ * sees its own writes even while the replica is still catching up. Writes are
+ * tracked per node, which session affinity keeps sufficient in a cluster.
+ */
+@Component
+public class ReadReplicaRouting {
+    
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+    
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+    
+    @Value("${chat.datasource.replica.url:}")
+    private String replicaUrl;
+    
+    @Value("${chat.datasource.replica.max-lag-ms:5000}")
+    private long maxLagMs;
+    
+    public ReadReplicaRouting(MeterRegistry meterRegistry) {
+        this.primaryReads = meterRegistry.counter("chat.datasource.reads", "target", "primary");
+        this.replicaReads = meterRegistry.counter("chat.datasource.reads", "target", "replica");
+    }
+    
+    /**
+     * Whether the current thread is inside a read that may use the replica.
+     */
+    public static boolean isReplicaRead() {
+        return Boolean.TRUE.equals(REPLICA_READ.get());
+    }
+    
+    /**
+     * Record that the given sessions or users were just written.
+     */
+    public void recordWrite(String... keys) {
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            if (key != null) {
+                recentWrites.put(key, now);
+            }
+        }
+    }
+    
+    /**
+     * Run a read for the given key, on the replica unless the key was written recently.
+     * Must be called inside a read-only transaction for the replica to be used.
+     */
+    public <T> T read(String key, Supplier<T> query) {
+        if (replicaUrl.isEmpty() || REPLICA_READ.get() != null) {
+            return query.get();
+        }
+        Long lastWrite = key != null ? recentWrites.get(key) : null;
+        if (lastWrite != null && System.currentTimeMillis() - lastWrite < maxLagMs) {
+            primaryReads.increment();
+            return query.get();
+        }
+        replicaReads.increment();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            REPLICA_READ.remove();
+        }
+    }
+    
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - maxLagMs;
+        recentWrites.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
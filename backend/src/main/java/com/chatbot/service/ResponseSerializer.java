@@ -0,0 +1,81 @@
+package com.chatbot.service;
+
+import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.MetadataSerializer;
+import com.chatbot.model.dto.SerializedResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes each chat response once. The JSON is attached to the response for
+ * the HTTP body, and the metadata column is sliced from the same bytes.
+ */
+@Component
+public class ResponseSerializer {
+    
+    private static final int INITIAL_BUFFER_BYTES = 4 * 1024;
+    
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+    
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    
+    public ResponseSerializer(ObjectMapper objectMapper) {
+        // Same mapper as the HTTP layer, so the bytes match what Spring would write
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(ChatResponse.class);
+    }
+    
+    public SerializedResponse serialize(ChatResponse response) throws IOException {
+        List<Integer> metadataRanges = MetadataSerializer.startCapture();
+        SerializedResponse serialized;
+        try {
+            // A plain stream, so the metadata serializer can read its offsets from it
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_BYTES);
+            writer.writeValue(buffer, response);
+            boolean captured = response.getMetadata() != null && !metadataRanges.contains(-1);
+            serialized = new SerializedResponse(buffer.toByteArray(), captured ? metadataRanges : null);
+        } finally {
+            MetadataSerializer.endCapture();
+        }
+        response.setSerialized(serialized);
+        return serialized;
+    }
+    
+    /**
+     * The stored metadata is spliced from the response bytes. Check once at startup
+     * that it parses back to the non-empty entries and that the HTTP body keeps all
+     * of them, so a generator change fails fast instead of storing invalid JSON.
+     */
+    @PostConstruct
+    public void verifyMetadataRoundTrip() throws IOException {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("entities", Collections.emptyMap());
+        metadata.put("intent", "list");
+        metadata.put("filters", Collections.singletonList("active"));
+        metadata.put("note", null);
+        metadata.put("dataType", "users");
+        ChatResponse sample = ChatResponse.builder().message("sample").success(true).metadata(metadata).build();
+        SerializedResponse serialized = serialize(sample);
+        
+        Map<String, Object> expectedStored = new LinkedHashMap<>(metadata);
+        expectedStored.remove("entities");
+        expectedStored.remove("note");
+        String stored = serialized.metadataJson();
+        Map<String, Object> body = objectMapper.readValue(serialized.getJson(), MAP_TYPE);
+        if (stored == null || !expectedStored.equals(objectMapper.readValue(stored, MAP_TYPE))
+                || !metadata.equals(body.get("metadata"))) {
+            throw new IllegalStateException("Response metadata does not round-trip, stored: " + stored);
+        }
+    }
+}
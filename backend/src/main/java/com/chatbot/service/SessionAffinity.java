@@ -0,0 +1,77 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ownership of sessions across the configured cluster nodes.
+ *
+ * The owner of a session is advertised to clients and the load balancer in the
+ * X-Chat-Session-Owner response header, so requests for that session can be
+ * routed to the node holding its hot state. Adding or removing a node only
+ * moves the sessions adjacent to it on the ring.
+ */
+@Component
+public class SessionAffinity {
+    
+    public static final String OWNER_HEADER = "X-Chat-Session-Owner";
+    private static final int VIRTUAL_NODES = 128;
+    
+    private final String nodeId;
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Counter localRequests;
+    private final Counter remoteRequests;
+    
+    public SessionAffinity(@Value("${chat.cluster.node-id:local}") String nodeId,
+                           @Value("${chat.cluster.nodes:}") List<String> nodes,
+                           MeterRegistry meterRegistry) {
+        this.nodeId = nodeId;
+        for (String node : nodes.isEmpty() ? List.of(nodeId) : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        this.localRequests = meterRegistry.counter("chat.affinity.requests", "owner", "local");
+        this.remoteRequests = meterRegistry.counter("chat.affinity.requests", "owner", "remote");
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public String ownerOf(String sessionId) {
+        SortedMap<Long, String> tail = ring.tailMap(hash(sessionId));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+    
+    /**
+     * Record whether a session's request landed on its owner, and return the owner.
+     */
+    public String route(String sessionId) {
+        String owner = ownerOf(sessionId);
+        (owner.equals(nodeId) ? localRequests : remoteRequests).increment();
+        return owner;
+    }
+    
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.chatbot.service;
+
+import com.chatbot.model.repository.ChatMessageRepository;
+import com.chatbot.model.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduled retention for chat sessions and their messages.
+ *
+ * Work is done in bounded chunks selected through the lastActivity/sessionId
+ * indexes, each chunk in its own short transaction using bulk UPDATE/DELETE
+ * statements, and paced to a rows/second budget so a large backlog never holds
+ * table locks for long.
+ */
+@Component
+@Slf4j
+public class SessionRetentionJob {
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatSearchIndex searchIndex;
+
+    private final Counter sessionsDeactivated;
+    private final Counter sessionsPurged;
+    private final Counter messagesPurged;
+    private final Timer runTimer;
+    private final AtomicLong lastRunRows = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${chat.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.retention.deactivate-after-days:7}")
+    private int deactivateAfterDays;
+
+    @Value("${chat.retention.purge-after-days:30}")
+    private int purgeAfterDays;
+
+    @Value("${chat.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${chat.retention.max-rows-per-second:5000}")
+    private int maxRowsPerSecond;
+
+    public SessionRetentionJob(ChatSessionRepository sessionRepository,
+                               ChatMessageRepository messageRepository,
+                               TransactionTemplate transactionTemplate,
+                               ChatSearchIndex searchIndex,
+                               MeterRegistry meterRegistry) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.searchIndex = searchIndex;
+        this.sessionsDeactivated = meterRegistry.counter("chat.retention.sessions.deactivated");
+        this.sessionsPurged = meterRegistry.counter("chat.retention.sessions.purged");
+        this.messagesPurged = meterRegistry.counter("chat.retention.messages.purged");
+        this.runTimer = meterRegistry.timer("chat.retention.run");
+        meterRegistry.gauge("chat.retention.last.run.rows", lastRunRows);
+        meterRegistry.gauge("chat.retention.running", running, r -> r.get() ? 1 : 0);
+    }
+
+    @Scheduled(cron = "${chat.retention.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Run one retention pass. Returns the number of rows touched, or -1 if a pass
+     * is already in progress.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Retention pass already running, skipping");
+            return -1;
+        }
+        try {
+            long rows = runTimer.record(this::runPass);
+            lastRunRows.set(rows);
+            return rows;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long runPass() {
+        LocalDateTime deactivateCutoff = LocalDateTime.now().minusDays(deactivateAfterDays);
+        LocalDateTime purgeCutoff = LocalDateTime.now().minusDays(purgeAfterDays);
+        Pageable chunk = PageRequest.of(0, chunkSize);
+        long total = 0;
+
+        // Purge first so expired sessions are not needlessly deactivated
+        while (true) {
+            long started = System.nanoTime();
+            List<String> sessionIds = sessionRepository.findExpiredSessionIds(purgeCutoff, chunk);
+            if (sessionIds.isEmpty()) {
+                break;
+            }
+            long rows = purgeMessages(sessionIds, chunk);
+            Integer deleted = transactionTemplate.execute(status -> {
+                searchIndex.deleteSessions(sessionIds);
+                return sessionRepository.deleteSessions(sessionIds);
+            });
+            int sessions = deleted != null ? deleted : 0;
+            sessionsPurged.increment(sessions);
+            rows += sessions;
+            total += rows;
+            log.debug("Retention purged {} session(s), {} row(s) so far", sessions, total);
+            throttle(sessions, started);
+        }
+
+        // Messages orphaned by the previous entity-by-entity delete
+        while (true) {
+            long started = System.nanoTime();
+            List<Long> ids = messageRepository.findOrphanedMessageIds(purgeCutoff, chunk);
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer deleted = transactionTemplate.execute(status -> {
+                searchIndex.deleteMessages(ids);
+                return messageRepository.deleteByIds(ids);
+            });
+            int rows = deleted != null ? deleted : 0;
+            messagesPurged.increment(rows);
+            total += rows;
+            throttle(rows, started);
+        }
+
+        while (true) {
+            long started = System.nanoTime();
+            List<String> sessionIds = sessionRepository.findInactiveSessionIds(deactivateCutoff, chunk);
+            if (sessionIds.isEmpty()) {
+                break;
+            }
+            Integer updated = transactionTemplate.execute(status -> sessionRepository.deactivateSessions(sessionIds));
+            int rows = updated != null ? updated : 0;
+            sessionsDeactivated.increment(rows);
+            total += rows;
+            throttle(rows, started);
+        }
+
+        log.info("Retention pass complete: {} row(s) affected", total);
+        return total;
+    }
+
+    private long purgeMessages(List<String> sessionIds, Pageable chunk) {
+        long purged = 0;
+        while (true) {
+            long started = System.nanoTime();
+            List<Long> ids = messageRepository.findIdsBySessionIds(sessionIds, chunk);
+            if (ids.isEmpty()) {
+                return purged;
+            }
+            Integer deleted = transactionTemplate.execute(status -> {
+                searchIndex.deleteMessages(ids);
+                return messageRepository.deleteByIds(ids);
+            });
+            int rows = deleted != null ? deleted : 0;
+            messagesPurged.increment(rows);
+            purged += rows;
+            throttle(rows, started);
+        }
+    }
+
+    private void throttle(int rows, long startedNanos) {
+        if (maxRowsPerSecond <= 0 || rows <= 0) {
+            return;
+        }
+        long budgetMillis = rows * 1000L / maxRowsPerSecond;
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        long sleepMillis = budgetMillis - elapsedMillis;
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.chatbot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface SessionStore {
+    
+    /**
+     * Read a value, if present and not expired
+     */
+    <T> Optional<T> get(String namespace, String key, TypeReference<T> type);
+    
+    /**
+     * Store a value, replacing any previous one, for at most ttl
+     */
+    void put(String namespace, String key, Object value, Duration ttl);
+    
+    /**
+     * Remove a value
+     */
+    void evict(String namespace, String key);
+}
@@ -0,0 +1,85 @@
+package com.chatbot.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fills chat_sessions.message_count and last_message_preview for sessions that
+ * had messages before those columns were maintained on write.
+ *
+ * A session needs it when it has messages but no preview, which no exchange
+ * recorded since leaves behind, so the backfill only ever touches old sessions
+ * and finds nothing on later startups. Sessions are walked in id order in chunks
+ * through plain JDBC; the count is taken from the stored rows and the preview
+ * from the newest message, decoded since it may be stored compressed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionSummaryBackfill {
+
+    private final ColumnCompression compression;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${chat.session-summary.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${chat.session-summary.backfill-chunk-size:500}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (backfillOnStartup) {
+            CompletableFuture.runAsync(this::backfill);
+        }
+    }
+
+    public long backfill() {
+        String afterSessionId = "";
+        long backfilled = 0;
+
+        while (true) {
+            List<String> sessionIds = jdbcTemplate.queryForList(
+                    "SELECT s.session_id FROM chat_sessions s WHERE s.session_id > ? " +
+                    "AND s.last_message_preview IS NULL " +
+                    "AND EXISTS (SELECT 1 FROM chat_messages m WHERE m.session_id = s.session_id) " +
+                    "ORDER BY s.session_id LIMIT ?",
+                    String.class, afterSessionId, chunkSize);
+            if (sessionIds.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> updates = new ArrayList<>();
+            for (String sessionId : sessionIds) {
+                List<String> latest = jdbcTemplate.queryForList(
+                        "SELECT message FROM chat_messages WHERE session_id = ? ORDER BY timestamp DESC, id DESC LIMIT 1",
+                        String.class, sessionId);
+                String preview = latest.isEmpty() ? null : ChatService.preview(compression.decompress(latest.get(0)));
+                updates.add(new Object[] {sessionId, preview, sessionId});
+            }
+            // Counted in the UPDATE itself; a preview set meanwhile by a live exchange is newer and kept
+            jdbcTemplate.batchUpdate(
+                    "UPDATE chat_sessions SET " +
+                    "message_count = (SELECT COUNT(*) FROM chat_messages m WHERE m.session_id = ?), " +
+                    "last_message_preview = COALESCE(last_message_preview, ?) WHERE session_id = ?", updates);
+
+            backfilled += sessionIds.size();
+            afterSessionId = sessionIds.get(sessionIds.size() - 1);
+            log.debug("Backfilled summaries for {} session(s)", backfilled);
+        }
+
+        if (backfilled > 0) {
+            log.info("Session summary backfill complete: {} session(s)", backfilled);
+        }
+        return backfilled;
+    }
+}
@@ -0,0 +1,338 @@
+package com.chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Near-duplicate answer cache.
+ *
+ * Messages are normalized (case, punctuation, filler words, intent synonyms,
+ * plurals) into a set of unigram and bigram shingles and fingerprinted with
+ * MinHash. Signatures are banded into an LSH index per scope (intent, data type,
+ * page, context and the exact numbers and names the message contains), so only
+ * likely neighbours are compared; a cached answer is served when the exact
+ * shingle Jaccard similarity reaches the threshold.
+ *
+ * Entries older than ttl-minutes are never served and are purged, with their
+ * LSH bands, by a periodic sweep. A sample of hits can be verified against a
+ * fresh answer to estimate precision.
+ * The cache is local to each node; a node that has not seen a question asks the
+ * provider.
+ */
+@Component
+public class SimilarityCache {
+
+    private static final int NUM_HASHES = 64;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int NUM_BANDS = NUM_HASHES / ROWS_PER_BAND;
+
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "all", "please", "me", "my", "can", "could", "would", "you", "i",
+            "of", "to", "for", "some", "any", "us", "kindly", "just", "what", "are", "is"));
+
+    private static final Map<String, String> SYNONYMS = new HashMap<>();
+
+    static {
+        for (String word : Arrays.asList("show", "display", "view", "see", "get", "give", "find")) {
+            SYNONYMS.put(word, "list");
+        }
+        for (String word : Arrays.asList("purchase", "purchases")) {
+            SYNONYMS.put(word, "order");
+        }
+        for (String word : Arrays.asList("account", "accounts", "customer", "customers")) {
+            SYNONYMS.put(word, "user");
+        }
+        for (String word : Arrays.asList("item", "items")) {
+            SYNONYMS.put(word, "product");
+        }
+    }
+
+    private final long[] hashSeeds = new long[NUM_HASHES];
+    private final Map<String, Map<String, Set<Long>>> bandsByScope = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Deque<Long> insertionOrder = new ArrayDeque<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter verified;
+    private final Counter verifiedAgree;
+    private final DistributionSummary hitSimilarity;
+
+    @Value("${chat.similarity-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.similarity-cache.threshold:0.8}")
+    private double threshold;
+
+    @Value("${chat.similarity-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${chat.similarity-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${chat.similarity-cache.verify-sample-rate:0.0}")
+    private double verifySampleRate;
+
+    public SimilarityCache(MeterRegistry meterRegistry) {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+        this.hits = meterRegistry.counter("chat.similarity.cache.hits");
+        this.misses = meterRegistry.counter("chat.similarity.cache.misses");
+        this.verified = meterRegistry.counter("chat.similarity.cache.verified");
+        this.verifiedAgree = meterRegistry.counter("chat.similarity.cache.verified.agree");
+        this.hitSimilarity = meterRegistry.summary("chat.similarity.cache.hit.similarity");
+        meterRegistry.gauge("chat.similarity.cache.hit.rate", this,
+                cache -> ratio(cache.hits.count(), cache.hits.count() + cache.misses.count()));
+        meterRegistry.gauge("chat.similarity.cache.precision", this,
+                cache -> ratio(cache.verifiedAgree.count(), cache.verified.count()));
+        meterRegistry.gauge("chat.similarity.cache.size", entries, Map::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Find a cached answer for a near-duplicate message in the same scope.
+     */
+    public Optional<String> lookup(String scope, String message) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Set<String> shingles = shingles(message);
+        if (shingles.isEmpty()) {
+            return Optional.empty();
+        }
+        long[] signature = signature(shingles);
+        long expiry = System.currentTimeMillis() - ttlMinutes * 60_000;
+
+        Entry best = null;
+        double bestSimilarity = 0;
+        lock.readLock().lock();
+        try {
+            Map<String, Set<Long>> bands = bandsByScope.get(scope);
+            if (bands != null) {
+                Set<Long> candidates = new LinkedHashSet<>();
+                for (int band = 0; band < NUM_BANDS; band++) {
+                    candidates.addAll(bands.getOrDefault(bandKey(signature, band), Collections.emptySet()));
+                }
+                for (Long id : candidates) {
+                    Entry entry = entries.get(id);
+                    if (entry == null || entry.createdAt < expiry) {
+                        continue;
+                    }
+                    double similarity = jaccard(shingles, entry.shingles);
+                    if (similarity > bestSimilarity) {
+                        best = entry;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (best == null || bestSimilarity < threshold) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        hitSimilarity.record(bestSimilarity);
+        return Optional.of(best.answer);
+    }
+
+    /**
+     * Whether this hit should be checked against a fresh upstream answer.
+     */
+    public boolean shouldVerify() {
+        return verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate;
+    }
+
+    /**
+     * Record the outcome of verifying a cached answer against a fresh one.
+     */
+    public void recordVerification(String cachedAnswer, String freshAnswer) {
+        verified.increment();
+        if (jaccard(shingles(cachedAnswer), shingles(freshAnswer)) >= threshold) {
+            verifiedAgree.increment();
+        }
+    }
+
+    public void store(String scope, String message, String answer) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> shingles = shingles(message);
+        if (shingles.isEmpty()) {
+            return;
+        }
+        long[] signature = signature(shingles);
+        Entry entry = new Entry(nextId.incrementAndGet(), scope, signature, shingles, answer);
+
+        lock.writeLock().lock();
+        try {
+            Map<String, Set<Long>> bands = bandsByScope.computeIfAbsent(scope, key -> new HashMap<>());
+            for (int band = 0; band < NUM_BANDS; band++) {
+                bands.computeIfAbsent(bandKey(signature, band), key -> new HashSet<>()).add(entry.id);
+            }
+            entries.put(entry.id, entry);
+            insertionOrder.addLast(entry.id);
+            while (entries.size() > maxEntries) {
+                evict(insertionOrder.pollFirst());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.similarity-cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        if (!enabled) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - ttlMinutes * 60_000;
+        lock.writeLock().lock();
+        try {
+            // Insertion order is creation order, so expired entries are at the head
+            while (!insertionOrder.isEmpty()) {
+                Entry oldest = entries.get(insertionOrder.peekFirst());
+                if (oldest != null && oldest.createdAt >= expiry) {
+                    break;
+                }
+                evict(insertionOrder.pollFirst());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evict(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        Map<String, Set<Long>> bands = bandsByScope.get(entry.scope);
+        for (int band = 0; band < NUM_BANDS; band++) {
+            String key = bandKey(entry.signature, band);
+            Set<Long> ids = bands.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    bands.remove(key);
+                }
+            }
+        }
+        if (bands.isEmpty()) {
+            bandsByScope.remove(entry.scope);
+        }
+    }
+
+    static Set<String> shingles(String text) {
+        Set<String> shingles = new HashSet<>();
+        if (text == null) {
+            return shingles;
+        }
+        String previous = null;
+        for (String raw : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (raw.isEmpty() || FILLER_WORDS.contains(raw)) {
+                continue;
+            }
+            String word = SYNONYMS.getOrDefault(raw, raw);
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            shingles.add(word);
+            if (previous != null) {
+                shingles.add(previous + " " + word);
+            }
+            previous = word;
+        }
+        return shingles;
+    }
+
+    private long[] signature(Set<String> shingles) {
+        long[] signature = new long[NUM_HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = shingle.hashCode();
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long hash = mix(base ^ hashSeeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static String bandKey(long[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            hash = mix(hash * 31 + signature[row]);
+        }
+        return band + ":" + Long.toHexString(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (String shingle : a) {
+            if (b.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private static double ratio(double numerator, double denominator) {
+        return denominator > 0 ? numerator / denominator : 0.0;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String scope;
+        private final long[] signature;
+        private final Set<String> shingles;
+        private final String answer;
+        private final long createdAt = System.currentTimeMillis();
+
+        private Entry(long id, String scope, long[] signature, Set<String> shingles, String answer) {
+            this.id = id;
+            this.scope = scope;
+            this.signature = signature;
+            this.shingles = shingles;
+            this.answer = answer;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatSession;
+import com.chatbot.model.dto.ChatRequest;
+import com.chatbot.model.dto.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Speculative answers to suggested follow-up actions.
+ *
+ * After an exchange whose response suggests message actions, the first of them
+ * is answered in the background with the session's history and context, and
+ * kept per session for ttl-seconds. When the user then sends exactly that
+ * message against the same context version, the prepared answer is served
+ * instead of another upstream round trip. Speculation only uses spare capacity:
+ * it runs on a small pool that refuses work when busy, is skipped while more
+ * than max-foreground chats are in flight, and once that limit is crossed
+ * pending speculations are cancelled: their worker is interrupted, which closes
+ * the streamed upstream request. Every completed speculation is charged to the
+ * user's daily quota, served or not; tokens of answers that are never served
+ * are also reported as wasted.
+ *
+ * Speculations are kept on the node that served the exchange, so they are only
+ * served when the follow-up is routed to the session's owner.
+ */
+@Component
+@Slf4j
+public class SpeculativeAnswers {
+
+    private final AIService aiService;
+    private final TokenUsageTracker usageTracker;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Speculation> speculations = new ConcurrentHashMap<>();
+    private final AtomicInteger foreground = new AtomicInteger();
+
+    private final Counter started;
+    private final Counter skipped;
+    private final Counter cancelled;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter usedTokens;
+    private final Counter wastedTokens;
+
+    @Value("${chat.speculation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.speculation.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${chat.speculation.max-foreground:50}")
+    private int maxForeground;
+
+    @Value("${chat.speculation.max-wait-ms:1000}")
+    private long maxWaitMs;
+
+    private volatile long expectedMillis = -1; // Moving average duration of completed speculations
+
+    public SpeculativeAnswers(AIService aiService,
+                              TokenUsageTracker usageTracker,
+                              MeterRegistry meterRegistry,
+                              @Value("${chat.speculation.max-concurrent:4}") int maxConcurrent) {
+        this.aiService = aiService;
+        this.usageTracker = usageTracker;
+
+        // No queue: a speculation either starts now on an idle worker or not at all
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-speculation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.started = meterRegistry.counter("chat.speculation.started");
+        this.skipped = meterRegistry.counter("chat.speculation.skipped");
+        this.cancelled = meterRegistry.counter("chat.speculation.cancelled");
+        this.hits = meterRegistry.counter("chat.speculation.hits");
+        this.misses = meterRegistry.counter("chat.speculation.misses");
+        this.usedTokens = meterRegistry.counter("chat.speculation.tokens", "outcome", "used");
+        this.wastedTokens = meterRegistry.counter("chat.speculation.tokens", "outcome", "wasted");
+        meterRegistry.gauge("chat.speculation.hit.rate", this,
+                answers -> ratio(answers.hits.count(), answers.started.count()));
+        meterRegistry.gauge("chat.speculation.pending", speculations, Map::size);
+        meterRegistry.gauge("chat.speculation.foreground", foreground);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mark a user-facing chat as in flight; crossing max-foreground cancels all speculation.
+     */
+    public void foregroundStarted() {
+        if (foreground.incrementAndGet() > maxForeground && enabled && !speculations.isEmpty()) {
+            cancelAll();
+        }
+    }
+
+    public void foregroundFinished() {
+        foreground.decrementAndGet();
+    }
+
+    /**
+     * Answer the first suggested message action of a finished exchange in the
+     * background, replacing any previous speculation for the session.
+     */
+    public void speculate(ChatExchange exchange) {
+        if (!enabled) {
+            return;
+        }
+        ChatResponse response = exchange.getResponse();
+        String followUp = firstFollowUp(response);
+        if (followUp == null || !response.isSuccess()) {
+            return;
+        }
+        ChatSession session = exchange.getSession();
+        discard(session.getSessionId());
+        if (foreground.get() >= maxForeground
+                || usageTracker.check(session.getUserId()) != TokenUsageTracker.Decision.ALLOW) {
+            skipped.increment();
+            return;
+        }
+
+        ChatRequest original = exchange.getRequest();
+        ChatRequest request = new ChatRequest();
+        request.setMessage(followUp);
+        request.setSessionId(session.getSessionId());
+        request.setUserId(session.getUserId());
+        request.setCurrentPage(original.getCurrentPage());
+        request.setSystemContext(original.getSystemContext());
+        request.setUserPreferences(original.getUserPreferences());
+
+        // History as it will be once this exchange is recorded
+        List<String> history = new ArrayList<>(exchange.getHistory() != null ? exchange.getHistory() : List.of());
+        history.add(String.format("User: %s\nAssistant: %s", original.getMessage(), response.getMessage()));
+        String renderedContext = session.getRenderedContext();
+        String model = exchange.getModel();
+
+        Speculation speculation = new Speculation(session.getUserId(), normalize(followUp),
+                session.getContextVersion(), System.currentTimeMillis() + ttlSeconds * 1000);
+        try {
+            // Streamed, so an interrupt from cancellation closes the upstream request at the next token
+            speculation.answer = executor.submit(() -> speculation.finish(
+                    aiService.processMessage(request, history, renderedContext, model, event -> { })));
+        } catch (RejectedExecutionException e) {
+            skipped.increment(); // All workers busy
+            return;
+        }
+        started.increment();
+        speculations.put(session.getSessionId(), speculation);
+        log.debug("event=chat.speculation.started sessionId={}", session.getSessionId());
+    }
+
+    /**
+     * Take the speculative answer for a session if it answers this exact message
+     * in the current context. A matching speculation still running is awaited
+     * for about the time it is expected to need, at most max-wait-ms, so a slow
+     * one adds little to a fresh call. Any other speculation for the session is
+     * discarded, the conversation has moved on.
+     */
+    public Optional<ChatResponse> take(ChatSession session, ChatRequest request) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Speculation speculation = speculations.remove(session.getSessionId());
+        if (speculation == null) {
+            return Optional.empty();
+        }
+        if (!speculation.matches(normalize(request.getMessage()), session.getContextVersion())) {
+            misses.increment();
+            waste(speculation);
+            return Optional.empty();
+        }
+
+        ChatResponse response;
+        try {
+            response = speculation.answer.get(waitMillis(speculation), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            waste(speculation);
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            misses.increment();
+            waste(speculation);
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.debug("Speculative answer for session {} failed: {}", session.getSessionId(), e.getMessage());
+            misses.increment();
+            return Optional.empty();
+        }
+        if (!response.isSuccess()) {
+            misses.increment();
+            waste(speculation);
+            return Optional.empty();
+        }
+
+        hits.increment();
+        usedTokens.increment(tokens(response.getUsage())); // Already charged to the quota when it finished
+        response.setSessionId(session.getSessionId());
+        response.setContextVersion(session.getContextVersion());
+        response.setTimestamp(LocalDateTime.now());
+        log.debug("event=chat.speculation.hit sessionId={}", session.getSessionId());
+        return Optional.of(response);
+    }
+
+    private long waitMillis(Speculation speculation) {
+        if (speculation.answer.isDone()) {
+            return 0;
+        }
+        if (expectedMillis < 0) {
+            return maxWaitMs; // No completed speculation to estimate from yet
+        }
+        long elapsed = System.currentTimeMillis() - speculation.startedAt;
+        return Math.min(maxWaitMs, Math.max(0, expectedMillis - elapsed));
+    }
+
+    /**
+     * Drop a session's speculation, e.g. when its history is cleared.
+     */
+    public void discard(String sessionId) {
+        Speculation speculation = speculations.remove(sessionId);
+        if (speculation != null) {
+            waste(speculation);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.speculation.sweep-interval-ms:10000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        speculations.forEach((sessionId, speculation) -> {
+            if (speculation.expiresAt < now && speculations.remove(sessionId, speculation)) {
+                waste(speculation);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void cancelAll() {
+        int count = 0;
+        for (String sessionId : speculations.keySet()) {
+            Speculation speculation = speculations.remove(sessionId);
+            if (speculation != null) {
+                waste(speculation);
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("event=chat.speculation.cancelled count={} foreground={}", count, foreground.get());
+        }
+    }
+
+    /**
+     * Account for a speculation that will never be served. A finished answer's
+     * tokens are wasted now; a running one is cancelled and interrupted, and any
+     * tokens the provider reports for it are counted as wasted when it returns.
+     */
+    private void waste(Speculation speculation) {
+        if (!speculation.discard()) {
+            speculation.answer.cancel(true);
+            cancelled.increment();
+        }
+    }
+
+    private static String firstFollowUp(ChatResponse response) {
+        if (response.getSuggestedActions() == null) {
+            return null;
+        }
+        for (ChatResponse.ActionButton action : response.getSuggestedActions()) {
+            if ("message".equals(action.getType()) && action.getParameters() != null
+                    && action.getParameters().get("message") instanceof String) {
+                return (String) action.getParameters().get("message");
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String message) {
+        return message == null ? "" : message.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static long tokens(ChatResponse.Usage usage) {
+        return usage == null ? 0 : usage.getPromptTokens() + usage.getCompletionTokens();
+    }
+
+    private static double ratio(double numerator, double denominator) {
+        return denominator == 0 ? 0 : numerator / denominator;
+    }
+
+    private final class Speculation {
+        private final String userId;
+        private final String message;
+        private final Long contextVersion;
+        private final long expiresAt;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile Future<ChatResponse> answer;
+        private ChatResponse response; // Guarded by this
+        private boolean discarded; // Guarded by this
+
+        private Speculation(String userId, String message, Long contextVersion, long expiresAt) {
+            this.userId = userId;
+            this.message = message;
+            this.contextVersion = contextVersion;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean matches(String message, Long contextVersion) {
+            return this.message.equals(message) && Objects.equals(this.contextVersion, contextVersion);
+        }
+
+        private synchronized ChatResponse finish(ChatResponse response) {
+            this.response = response;
+            usageTracker.record(userId, response.getUsage()); // Upstream tokens were spent whether or not it is served
+            if (discarded) {
+                wastedTokens.increment(tokens(response.getUsage()));
+            } else if (response.isSuccess()) {
+                long duration = System.currentTimeMillis() - startedAt;
+                long expected = expectedMillis;
+                expectedMillis = expected < 0 ? duration : (expected * 7 + duration) / 8;
+            }
+            return response;
+        }
+
+        /**
+         * @return whether the answer had already arrived
+         */
+        private synchronized boolean discard() {
+            discarded = true;
+            if (response != null) {
+                wastedTokens.increment(tokens(response.getUsage()));
+                return true;
+            }
+            return false;
+        }
+    }
+}
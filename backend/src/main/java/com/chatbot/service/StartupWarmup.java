@@ -0,0 +1,128 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.dto.ChatRequest;
+import com.chatbot.model.dto.ChatResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Synthetic warm-up of the chat hot paths before the instance takes traffic.
+ *
+ * Runs as an ApplicationRunner, i.e. before the readiness state switches to
+ * ACCEPTING_TRAFFIC, so /actuator/health/readiness stays down until class
+ * loading, JIT and provider connections are warm. Each iteration goes through
+ * session resolution, context rendering, history queries, prompt assembly and
+ * response serialization inside a rolled-back transaction; nothing is stored,
+ * neither in the database nor in the session store, no quota is checked and no
+ * completion is requested from the provider.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmup implements ApplicationRunner {
+    
+    private static final List<String> SAMPLE_MESSAGES = Arrays.asList(
+            "Show me all active users",
+            "What are the details of order 1042?",
+            "How do I create a new product?",
+            "List the most recent orders",
+            "Help me update a customer's email address");
+    
+    private final ChatService chatService;
+    private final AIService aiService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationContext applicationContext;
+    
+    @Value("${chat.startup.warmup.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${chat.startup.warmup.iterations:200}")
+    private int iterations;
+    
+    @Value("${chat.startup.warmup.connections:2}")
+    private int connections;
+    
+    @Value("${chat.startup.exit-after-warmup:false}")
+    private boolean exitAfterWarmup;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        
+        // Provider handshakes overlap with the local warm-up
+        CompletableFuture<Void> upstream = CompletableFuture.runAsync(() -> aiService.prewarmConnections(connections));
+        
+        int failures = 0;
+        for (int i = 0; i < iterations; i++) {
+            try {
+                warmUpOnce(sampleRequest(i));
+            } catch (Exception e) {
+                failures++;
+                log.debug("Warm-up iteration {} failed: {}", i, e.getMessage());
+            }
+        }
+        upstream.join();
+        
+        log.info("Warm-up finished: {} iteration(s), {} failure(s), {} upstream connection(s) in {} ms",
+                iterations, failures, connections, (System.nanoTime() - started) / 1_000_000);
+        
+        if (exitAfterWarmup) {
+            // Training run for the class-data-sharing archive
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+    }
+    
+    private void warmUpOnce(ChatRequest request) {
+        aiService.warmUp(request);
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            
+            ChatExchange exchange = chatService.prepareWarmUpExchange(request);
+            String sessionId = exchange.getSession().getSessionId();
+            ChatResponse response = ChatResponse.builder()
+                    .sessionId(sessionId)
+                    .message("Warm-up response")
+                    .responseFormat(ChatMessage.ResponseFormat.TEXT)
+                    .timestamp(LocalDateTime.now())
+                    .success(true)
+                    .contextVersion(exchange.getSession().getContextVersion())
+                    .build();
+            try {
+                objectMapper.writeValueAsBytes(response);
+                objectMapper.writeValueAsBytes(chatService.getChatHistory(sessionId));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            chatService.getHistoryVersion(sessionId);
+        });
+    }
+    
+    private ChatRequest sampleRequest(int iteration) {
+        ChatRequest request = new ChatRequest();
+        request.setMessage(SAMPLE_MESSAGES.get(iteration % SAMPLE_MESSAGES.size()));
+        request.setUserId("warmup");
+        request.setCurrentPage("dashboard");
+        request.setSystemContext(Map.of("currentPage", "dashboard", "role", "admin"));
+        return request;
+    }
+}
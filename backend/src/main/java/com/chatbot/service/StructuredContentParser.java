@@ -0,0 +1,480 @@
+package com.chatbot.service;
+
+import com.chatbot.model.ChatMessage;
+import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.ChatStreamEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parser that turns a model answer into list, table or card content
+ * while it is still being generated.
+ *
+ * Text is pushed in arbitrary chunks. Markdown is handled a line at a time: a
+ * pipe row followed by a separator row starts a table, bullet or numbered lines
+ * are list items, and a heading or a short line ending in a colon becomes the
+ * title. JSON, bare or in a fenced block, is scanned a character at a time so
+ * each element of a top-level array is parsed as soon as it closes: arrays of
+ * objects become table rows, arrays of scalars list items, and an object a card.
+ *
+ * The first structure found decides the format; later structures of another kind
+ * stay in the message text only. Every row or item is reported to the listener
+ * as soon as it is complete. An ITEM with an index that was already reported
+ * replaces it (nested bullets extend their parent's description).
+ *
+ * Not thread-safe; use one instance per answer.
+ */
+@Slf4j
+public class StructuredContentParser {
+
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)(?:[-*+•]|\\d{1,3}[.)])\\s+(.+)$");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\s*\\|?\\s*:?-{3,}:?\\s*(?:\\|\\s*:?-{3,}:?\\s*)*\\|?\\s*$");
+    private static final Pattern HEADING = Pattern.compile("^\\s*(?:#{1,6}\\s+(.+?)\\s*#*|\\*\\*(.+?)\\*\\*:?)\\s*$");
+    private static final Pattern BOLD_TITLE = Pattern.compile("^\\*\\*(.+?)\\*\\*\\s*(?:[:\\-–]\\s*)?(.*)$");
+    private static final Pattern LABELLED = Pattern.compile("^([^:]{1,60}):\\s+(.+)$");
+    private static final Pattern NUMBER = Pattern.compile("^-?(?:0|[1-9]\\d{0,14})(\\.\\d+)?$");
+    private static final int MAX_TITLE_LENGTH = 80;
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<ChatStreamEvent> listener;
+    private final StringBuilder line = new StringBuilder();
+
+    private ChatMessage.ResponseFormat format; // Set by the first structure found
+    private String title;
+    private boolean started; // Any non-whitespace seen
+    private boolean inFence;
+    private String pendingHeader; // Pipe row that may turn out to be a table header
+    private boolean inTable;
+    private JsonScanner json;
+
+    private List<String> headers;
+    private final List<List<Object>> rows = new ArrayList<>();
+    private final List<ChatResponse.ListContent.ListItem> items = new ArrayList<>();
+    private ChatResponse.CardContent card;
+
+    /**
+     * @param listener receives partial content as it is parsed, may be null
+     */
+    public StructuredContentParser(ObjectMapper objectMapper, Consumer<ChatStreamEvent> listener) {
+        this.objectMapper = objectMapper;
+        this.listener = listener != null ? listener : event -> { };
+    }
+
+    public void accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (json != null) {
+                if (json.feed(c)) {
+                    continue;
+                }
+                json = null; // Not JSON after all, treat as text
+            }
+            if (c == '\n') {
+                processLine(line.toString());
+                line.setLength(0);
+                continue;
+            }
+            if (!started && !Character.isWhitespace(c)) {
+                started = true;
+                if ((c == '{' || c == '[') && format == null) {
+                    // Answer is bare JSON
+                    json = new JsonScanner(false);
+                    json.feed(c);
+                    continue;
+                }
+            }
+            line.append(c);
+        }
+    }
+
+    /**
+     * Process whatever is left once the answer is complete.
+     */
+    public void finish() {
+        if (line.length() > 0) {
+            processLine(line.toString());
+            line.setLength(0);
+        }
+    }
+
+    /**
+     * Format of the structure found, null for plain text.
+     */
+    public ChatMessage.ResponseFormat getFormat() {
+        return format;
+    }
+
+    public Object getContent() {
+        if (format == null) {
+            return null;
+        }
+        switch (format) {
+            case TABLE:
+                return ChatResponse.TableContent.builder()
+                        .title(title != null ? title : "Data Table")
+                        .headers(headers)
+                        .rows(rows)
+                        .build();
+            case LIST:
+                return ChatResponse.ListContent.builder()
+                        .title(title != null ? title : "Results")
+                        .items(items)
+                        .build();
+            default:
+                return card;
+        }
+    }
+
+    private void processLine(String text) {
+        String trimmed = text.trim();
+        if (trimmed.startsWith("```")) {
+            inFence = !inFence;
+            if (inFence && format == null) {
+                String language = trimmed.substring(3).trim();
+                if (language.isEmpty() || language.equalsIgnoreCase("json")) {
+                    json = new JsonScanner(true); // Gives up on the first character if this is not JSON
+                }
+            }
+            pendingHeader = null;
+            inTable = false;
+            return;
+        }
+        if (inFence || trimmed.isEmpty()) {
+            pendingHeader = null;
+            inTable = false;
+            return;
+        }
+
+        boolean pipeRow = trimmed.startsWith("|");
+        if (inTable && pipeRow) {
+            addRow(cells(trimmed));
+            return;
+        }
+        if (pendingHeader != null && TABLE_SEPARATOR.matcher(trimmed).matches()) {
+            startTable(cells(pendingHeader));
+            pendingHeader = null;
+            return;
+        }
+        inTable = false;
+        pendingHeader = null;
+        if (pipeRow && format == null) {
+            pendingHeader = trimmed;
+            return;
+        }
+
+        Matcher item = LIST_ITEM.matcher(text);
+        if (item.matches() && (format == null || format == ChatMessage.ResponseFormat.LIST)) {
+            boolean nested = item.group(1).replace("\t", "  ").length() >= 2 && !items.isEmpty();
+            if (nested) {
+                extendItem(item.group(2).trim());
+            } else {
+                addItem(item.group(2).trim());
+            }
+            return;
+        }
+
+        if (format == null) {
+            Matcher heading = HEADING.matcher(trimmed);
+            if (heading.matches()) {
+                title = heading.group(1) != null ? heading.group(1) : heading.group(2);
+            } else if (trimmed.endsWith(":") && trimmed.length() <= MAX_TITLE_LENGTH) {
+                title = trimmed.substring(0, trimmed.length() - 1);
+            }
+        }
+    }
+
+    private void startTable(List<String> tableHeaders) {
+        format = ChatMessage.ResponseFormat.TABLE;
+        headers = tableHeaders;
+        inTable = true;
+        listener.accept(ChatStreamEvent.builder()
+                .type(ChatStreamEvent.Type.TABLE)
+                .title(title)
+                .headers(headers)
+                .build());
+    }
+
+    private void addRow(List<String> values) {
+        List<Object> row = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            row.add(i < values.size() ? cellValue(values.get(i)) : "");
+        }
+        emitRow(row);
+    }
+
+    private void emitRow(List<Object> row) {
+        rows.add(row);
+        listener.accept(ChatStreamEvent.builder()
+                .type(ChatStreamEvent.Type.ROW)
+                .index(rows.size() - 1)
+                .row(row)
+                .build());
+    }
+
+    private void addItem(String text) {
+        ChatResponse.ListContent.ListItem item = new ChatResponse.ListContent.ListItem();
+        Matcher bold = BOLD_TITLE.matcher(text);
+        Matcher labelled = LABELLED.matcher(text);
+        if (bold.matches()) {
+            item.setTitle(bold.group(1).trim());
+            item.setDescription(bold.group(2).isEmpty() ? null : bold.group(2).trim());
+        } else if (labelled.matches()) {
+            item.setTitle(labelled.group(1).trim());
+            item.setDescription(labelled.group(2).trim());
+        } else {
+            item.setTitle(text);
+        }
+        emitItem(item, -1);
+    }
+
+    private void extendItem(String text) {
+        int index = items.size() - 1;
+        ChatResponse.ListContent.ListItem item = items.get(index);
+        item.setDescription(item.getDescription() == null ? text : item.getDescription() + "; " + text);
+        emitItem(item, index);
+    }
+
+    private void emitItem(ChatResponse.ListContent.ListItem item, int replaceIndex) {
+        if (format == null) {
+            format = ChatMessage.ResponseFormat.LIST;
+            listener.accept(ChatStreamEvent.builder()
+                    .type(ChatStreamEvent.Type.LIST)
+                    .title(title)
+                    .build());
+        }
+        int index = replaceIndex;
+        if (index < 0) {
+            items.add(item);
+            index = items.size() - 1;
+        }
+        listener.accept(ChatStreamEvent.builder()
+                .type(ChatStreamEvent.Type.ITEM)
+                .index(index)
+                .item(item)
+                .build());
+    }
+
+    private void onJsonElement(JsonNode element) {
+        if (element.isObject()) {
+            if (format == null) {
+                List<String> fields = new ArrayList<>();
+                element.fieldNames().forEachRemaining(fields::add);
+                startTable(fields);
+                inTable = false; // Rows come from the array, not from pipe lines
+            }
+            if (format != ChatMessage.ResponseFormat.TABLE) {
+                return;
+            }
+            List<Object> row = new ArrayList<>(headers.size());
+            for (String header : headers) {
+                JsonNode value = element.get(header);
+                row.add(value == null || value.isNull() ? "" : toValue(value));
+            }
+            emitRow(row);
+        } else if (element.isValueNode() && (format == null || format == ChatMessage.ResponseFormat.LIST)) {
+            ChatResponse.ListContent.ListItem item = new ChatResponse.ListContent.ListItem();
+            item.setTitle(element.asText());
+            emitItem(item, -1);
+        }
+    }
+
+    private void onJsonObject(JsonNode object) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        ChatResponse.CardContent content = new ChatResponse.CardContent();
+        Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "title":
+                case "name":
+                    if (content.getTitle() == null) {
+                        content.setTitle(value.asText());
+                        break;
+                    }
+                    data.put(field.getKey(), toValue(value));
+                    break;
+                case "subtitle":
+                    content.setSubtitle(value.asText());
+                    break;
+                case "description":
+                    content.setDescription(value.asText());
+                    break;
+                case "imageUrl":
+                    content.setImageUrl(value.asText());
+                    break;
+                default:
+                    data.put(field.getKey(), toValue(value));
+            }
+        }
+        if (content.getTitle() == null) {
+            content.setTitle(title != null ? title : "Information");
+        }
+        content.setData(data);
+        format = ChatMessage.ResponseFormat.CARD;
+        card = content;
+        listener.accept(ChatStreamEvent.builder()
+                .type(ChatStreamEvent.Type.CARD)
+                .card(card)
+                .build());
+    }
+
+    private Object toValue(JsonNode value) {
+        if (value.isTextual()) {
+            return value.textValue();
+        }
+        if (value.isValueNode()) {
+            return value.isNumber() ? value.numberValue() : value.asText();
+        }
+        return objectMapper.convertValue(value, Object.class);
+    }
+
+    private static List<String> cells(String row) {
+        String body = row.trim();
+        if (body.startsWith("|")) {
+            body = body.substring(1);
+        }
+        if (body.endsWith("|") && !body.endsWith("\\|")) {
+            body = body.substring(0, body.length() - 1);
+        }
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\' && i + 1 < body.length() && body.charAt(i + 1) == '|') {
+                cell.append('|');
+                i++;
+            } else if (c == '|') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+
+    private static Object cellValue(String cell) {
+        String value = cell.replace("**", "").trim();
+        Matcher number = NUMBER.matcher(value);
+        if (!number.matches()) {
+            return value;
+        }
+        return number.group(1) == null ? (Object) Long.valueOf(value) : (Object) Double.valueOf(value);
+    }
+
+    /**
+     * Tracks JSON nesting a character at a time. For a top-level array each element
+     * is parsed as soon as it closes; a top-level object is parsed once complete.
+     */
+    private final class JsonScanner {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final boolean fenced;
+        private char top;
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private int backticks;
+
+        private JsonScanner(boolean fenced) {
+            this.fenced = fenced;
+        }
+
+        /**
+         * @return false if the text turned out not to be JSON; the character was not consumed
+         */
+        private boolean feed(char c) {
+            if (top == 0) {
+                if (Character.isWhitespace(c)) {
+                    return true;
+                }
+                if (c != '{' && c != '[') {
+                    return false;
+                }
+                top = c;
+                started = true;
+            }
+
+            if (inString) {
+                buffer.append(c);
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                return true;
+            }
+
+            // A closing fence before the JSON is complete: malformed, give up on it
+            backticks = c == '`' ? backticks + 1 : 0;
+            if (backticks == 3) {
+                json = null;
+                if (fenced) {
+                    inFence = false;
+                }
+                return true;
+            }
+
+            boolean arrayLevel = top == '[' && depth == 1;
+            if (arrayLevel && (c == ',' || c == ']')) {
+                element();
+            } else if (!(arrayLevel && Character.isWhitespace(c))) {
+                if (top == '{' || depth > 0) {
+                    buffer.append(c);
+                }
+            }
+
+            if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    if (top == '{') {
+                        parse(buffer.toString(), true);
+                    }
+                    json = null;
+                }
+            }
+            return true;
+        }
+
+        private void element() {
+            if (buffer.length() > 0) {
+                parse(buffer.toString(), false);
+                buffer.setLength(0);
+            }
+        }
+
+        private void parse(String text, boolean object) {
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (object) {
+                    if (format == null && node.isObject()) {
+                        onJsonObject(node);
+                    }
+                } else {
+                    onJsonElement(node);
+                }
+            } catch (IOException e) {
+                log.debug("Skipping malformed JSON in answer: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.chatbot.service;
+
+import com.chatbot.model.TokenUsage;
+import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.repository.TokenUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user, per-day provider token accounting and daily quotas.
+ *
+ * Exchanges add to striped in-memory counters; a scheduled flush adds the delta
+ * since the previous flush to the token_usage table with an in-place UPDATE, so
+ * several nodes can flush into the same row. Quota checks compare the stored
+ * total for the day (refreshed on every flush, so usage on other nodes shows up
+ * within one interval) plus this node's unflushed tokens against the quota.
+ */
+@Component
+@Slf4j
+public class TokenUsageTracker {
+
+    public enum Decision { ALLOW, DOWNGRADE, REJECT }
+
+    private final TokenUsageRepository usageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<UsageKey, Usage> usage = new ConcurrentHashMap<>();
+
+    private final Counter promptTokens;
+    private final Counter completionTokens;
+    private final Counter quotaDowngraded;
+    private final Counter quotaRejected;
+
+    @Value("${chat.usage.quota.daily-tokens:0}")
+    private long dailyTokenQuota;
+
+    @Value("${chat.usage.quota.action:reject}")
+    private String quotaAction;
+
+    @Value("${chat.usage.quota.downgrade-model:}")
+    private String downgradeModel;
+
+    public TokenUsageTracker(TokenUsageRepository usageRepository,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry) {
+        this.usageRepository = usageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.promptTokens = meterRegistry.counter("chat.usage.tokens", "type", "prompt");
+        this.completionTokens = meterRegistry.counter("chat.usage.tokens", "type", "completion");
+        this.quotaDowngraded = meterRegistry.counter("chat.usage.quota.exceeded", "action", "downgrade");
+        this.quotaRejected = meterRegistry.counter("chat.usage.quota.exceeded", "action", "reject");
+    }
+
+    public String getDowngradeModel() {
+        return downgradeModel;
+    }
+
+    /**
+     * Decide whether a user may make another upstream call today. Cheap after the
+     * first call per user and day: one query, then memory only.
+     */
+    public Decision check(String userId) {
+        if (dailyTokenQuota <= 0) {
+            return Decision.ALLOW;
+        }
+        Usage today = usage.computeIfAbsent(new UsageKey(key(userId), LocalDate.now()), key -> new Usage());
+        if (today.stored < 0) {
+            Long stored = usageRepository.findTotalTokens(key(userId), LocalDate.now());
+            today.stored = stored != null ? stored : 0;
+        }
+        if (today.totalTokens() < dailyTokenQuota) {
+            return Decision.ALLOW;
+        }
+        if ("downgrade".equalsIgnoreCase(quotaAction) && !downgradeModel.isEmpty()) {
+            quotaDowngraded.increment();
+            return Decision.DOWNGRADE;
+        }
+        quotaRejected.increment();
+        return Decision.REJECT;
+    }
+
+    public void record(String userId, ChatResponse.Usage tokens) {
+        if (tokens == null) {
+            return;
+        }
+        Usage today = usage.computeIfAbsent(new UsageKey(key(userId), LocalDate.now()), key -> new Usage());
+        today.promptTokens.add(tokens.getPromptTokens());
+        today.completionTokens.add(tokens.getCompletionTokens());
+        today.requests.increment();
+        promptTokens.increment(tokens.getPromptTokens());
+        completionTokens.increment(tokens.getCompletionTokens());
+    }
+
+    @Scheduled(fixedDelayString = "${chat.usage.flush-interval-ms:10000}")
+    public void flush() {
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<UsageKey, Usage> entry : usage.entrySet()) {
+            UsageKey key = entry.getKey();
+            Usage pending = entry.getValue();
+            try {
+                flush(key, pending);
+                if (key.getUsageDate().isBefore(today)) {
+                    usage.remove(key, pending);
+                    flush(key, pending); // Anything recorded during the first flush
+                }
+            } catch (Exception e) {
+                log.warn("Error flushing token usage for user {}: {}", key.getUserId(), e.getMessage());
+            }
+        }
+    }
+
+    private void flush(UsageKey key, Usage pending) {
+        // Deltas against what was already flushed; LongAdder.sumThenReset could lose concurrent adds
+        long prompt = pending.promptTokens.sum();
+        long completion = pending.completionTokens.sum();
+        long requests = pending.requests.sum();
+        long promptDelta = prompt - pending.flushedPromptTokens;
+        long completionDelta = completion - pending.flushedCompletionTokens;
+        long requestsDelta = requests - pending.flushedRequests;
+
+        if (requestsDelta > 0) {
+            addUsage(key, promptDelta, completionDelta, requestsDelta);
+        }
+        // Only quota checks read the stored total; refreshing it picks up other nodes' usage
+        Long stored = dailyTokenQuota > 0 ? usageRepository.findTotalTokens(key.getUserId(), key.getUsageDate()) : null;
+
+        // Stored total now includes these deltas; publish both together
+        pending.flushedPromptTokens = prompt;
+        pending.flushedCompletionTokens = completion;
+        pending.flushedRequests = requests;
+        pending.stored = stored != null ? stored : Math.max(0, pending.stored) + promptDelta + completionDelta;
+    }
+
+    private void addUsage(UsageKey key, long promptDelta, long completionDelta, long requestsDelta) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = usageRepository.addUsage(key.getUserId(), key.getUsageDate(),
+                        promptDelta, completionDelta, requestsDelta);
+                if (updated == 0) {
+                    usageRepository.save(TokenUsage.builder()
+                            .userId(key.getUserId())
+                            .usageDate(key.getUsageDate())
+                            .promptTokens(promptDelta)
+                            .completionTokens(completionDelta)
+                            .requests(requestsDelta)
+                            .build());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row first
+            transactionTemplate.executeWithoutResult(status -> usageRepository.addUsage(
+                    key.getUserId(), key.getUsageDate(), promptDelta, completionDelta, requestsDelta));
+        }
+    }
+
+    private static String key(String userId) {
+        return userId != null ? userId : "anonymous";
+    }
+
+    @Data
+    private static final class UsageKey {
+        private final String userId;
+        private final LocalDate usageDate;
+    }
+
+    private static final class Usage {
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+
+        // Written by the flush thread only
+        private volatile long flushedPromptTokens;
+        private volatile long flushedCompletionTokens;
+        private volatile long flushedRequests;
+        private volatile long stored = -1; // Stored total for the day, -1 until loaded
+
+        private long totalTokens() {
+            long unflushed = promptTokens.sum() + completionTokens.sum()
+                    - flushedPromptTokens - flushedCompletionTokens;
+            return Math.max(0, stored) + unflushed;
+        }
+    }
+}
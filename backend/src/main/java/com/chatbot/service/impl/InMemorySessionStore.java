@@ -0,0 +1,81 @@
+package com.chatbot.service.impl;
+
+import com.chatbot.service.SessionStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node-local session store. Suitable for a single instance, or several instances
+ * with session affinity where an occasional stale read is acceptable.
+ *
+ * Values are kept as JSON, like in the JDBC store, so every read returns a copy
+ * of the type asked for and callers can never change a stored value in place.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.session-store.type", havingValue = "memory", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class InMemorySessionStore implements SessionStore {
+    
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    @Override
+    public <T> Optional<T> get(String namespace, String key, TypeReference<T> type) {
+        Entry entry = entries.get(namespace + ":" + key);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(entry.value, type));
+        } catch (IOException e) {
+            log.warn("Discarding unreadable session store entry {}:{}: {}", namespace, key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public void put(String namespace, String key, Object value, Duration ttl) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing session store entry {}:{}: {}", namespace, key, e.getMessage());
+            return;
+        }
+        entries.put(namespace + ":" + key, new Entry(json, System.currentTimeMillis() + ttl.toMillis()));
+    }
+    
+    @Override
+    public void evict(String namespace, String key) {
+        entries.remove(namespace + ":" + key);
+    }
+    
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+    }
+    
+    private static final class Entry {
+        private final byte[] value; // JSON
+        private final long expiresAt;
+        
+        private Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
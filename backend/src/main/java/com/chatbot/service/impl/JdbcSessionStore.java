@@ -0,0 +1,181 @@
+package com.chatbot.service.impl;
+
+import com.chatbot.model.SessionStoreEntry;
+import com.chatbot.model.repository.SessionStoreRepository;
+import com.chatbot.service.SessionStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session store shared by all nodes through the application database. Values are
+ * stored as JSON with an expiry; expired rows are ignored on read and purged
+ * periodically.
+ *
+ * Writes are applied behind the caller by a single writer thread, in their own
+ * short transaction, and failures are only logged. A write made inside a
+ * transaction is queued when that transaction commits and dropped if it rolls
+ * back, so the store never holds state the database does not, and a request
+ * never needs a second pooled connection while holding its own. Until a write
+ * is applied, reads on this node see it; other nodes see it once it is applied.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.session-store.type", havingValue = "jdbc")
+@Slf4j
+public class JdbcSessionStore implements SessionStore {
+    
+    private final SessionStoreRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final ThreadPoolExecutor writer;
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>(); // Queued, not yet applied
+    
+    public JdbcSessionStore(SessionStoreRepository repository,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${chat.session-store.write-queue-capacity:10000}") int writeQueueCapacity) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        
+        // One writer keeps writes to a key in order; a full queue drops writes, the store is only a cache
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(writeQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "session-store-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @Override
+    public <T> Optional<T> get(String namespace, String key, TypeReference<T> type) {
+        String storeKey = namespace + ":" + key;
+        String payload;
+        LocalDateTime expiresAt;
+        PendingWrite write = pending.get(storeKey);
+        if (write != null) {
+            payload = write.payload;
+            expiresAt = write.expiresAt;
+        } else {
+            Optional<SessionStoreEntry> entry = repository.findById(storeKey);
+            payload = entry.map(SessionStoreEntry::getPayload).orElse(null);
+            expiresAt = entry.map(SessionStoreEntry::getExpiresAt).orElse(null);
+        }
+        if (payload == null || expiresAt.isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(payload, type));
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable session store entry {}: {}", storeKey, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public void put(String namespace, String key, Object value, Duration ttl) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing session store entry {}:{}: {}", namespace, key, e.getMessage());
+            return;
+        }
+        submit(namespace + ":" + key, new PendingWrite(payload, LocalDateTime.now().plus(ttl)));
+    }
+    
+    @Override
+    public void evict(String namespace, String key) {
+        submit(namespace + ":" + key, new PendingWrite(null, null));
+    }
+    
+    @Scheduled(fixedDelay = 60000)
+    @Transactional
+    public void evictExpired() {
+        repository.deleteExpired(LocalDateTime.now());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Apply what is queued before the datasource goes away
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Dropping {} unapplied session store write(s) on shutdown", writer.getQueue().size());
+        }
+    }
+    
+    private void submit(String storeKey, PendingWrite write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(storeKey, write);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(storeKey, write);
+            }
+        });
+    }
+    
+    private void enqueue(String storeKey, PendingWrite write) {
+        pending.put(storeKey, write);
+        try {
+            writer.execute(() -> apply(storeKey, write));
+        } catch (RejectedExecutionException e) {
+            pending.remove(storeKey, write);
+            log.warn("Dropping session store write {}: writer queue full", storeKey);
+        }
+    }
+    
+    private void apply(String storeKey, PendingWrite write) {
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                if (write.payload == null) {
+                    repository.deleteByStoreKey(storeKey);
+                } else {
+                    repository.save(SessionStoreEntry.builder()
+                            .storeKey(storeKey)
+                            .payload(write.payload)
+                            .expiresAt(write.expiresAt)
+                            .build());
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Error writing session store entry {}: {}", storeKey, e.getMessage());
+        } finally {
+            pending.remove(storeKey, write); // Unless a newer write for the key is queued
+        }
+    }
+    
+    private static final class PendingWrite {
+        private final String payload; // Null for an eviction
+        private final LocalDateTime expiresAt;
+        
+        private PendingWrite(String payload, LocalDateTime expiresAt) {
+            this.payload = payload;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.chatbot.service.impl;
 import com.chatbot.model.ChatMessage;
 import com.chatbot.model.dto.ChatRequest;
 import com.chatbot.model.dto.ChatResponse;
+import com.chatbot.model.dto.ChatStreamEvent;
 import com.chatbot.service.AIService;
+import com.chatbot.service.SimilarityCache;
+import com.chatbot.service.StructuredContentParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -12,12 +15,27 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
@@ -27,6 +45,7 @@ public class OpenAIServiceImpl implements AIService {
     
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final SimilarityCache similarityCache;
     
     @Value("${ai.openai.api-key}")
     private String apiKey;
@@ -40,23 +59,58 @@ public class OpenAIServiceImpl implements AIService {
     @Value("${ai.openai.temperature}")
     private double temperature;
     
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
+    @Value("${chat.speculation.enabled:false}")
+    private boolean speculativeFollowUps; // Offer follow-ups as chat messages that can be answered ahead of time
+    
+    @Value("${ai.openai.base-url:https://api.openai.com}")
+    private String baseUrl; // Overridden to point load tests at a stand-in provider
+    
+    private static final Pattern QUOTED_PATTERN = Pattern.compile("\"([^\"]+)\"");
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[\\p{L}\\p{N}._%+@-]+");
+    
+    private static final String COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String MODELS_PATH = "/v1/models";
     
     @Override
     public ChatResponse processMessage(ChatRequest request, List<String> conversationHistory) {
+        return processMessage(request, conversationHistory, renderContext(request.getSystemContext()));
+    }
+    
+    @Override
+    public ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext) {
+        return processMessage(request, conversationHistory, renderedContext, null);
+    }
+    
+    @Override
+    public ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext,
+                                       String modelOverride) {
+        return processMessage(request, conversationHistory, renderedContext, modelOverride, null);
+    }
+    
+    @Override
+    public ChatResponse processMessage(ChatRequest request, List<String> conversationHistory, String renderedContext,
+                                       String modelOverride, Consumer<ChatStreamEvent> updates) {
         try {
             // Analyze message to determine response format
             Map<String, Object> analysis = analyzeMessage(request.getMessage(), request.getSystemContext());
             
             // Build context-aware prompt
-            String enhancedPrompt = buildContextualPrompt(request, conversationHistory);
+            String enhancedPrompt = buildContextualPrompt(request, conversationHistory, renderedContext);
             
-            // Call OpenAI API
-            String aiResponse = callOpenAI(enhancedPrompt);
+            // Serve a near-duplicate question's answer when possible, else call OpenAI;
+            // when streaming, structured content is parsed token by token as it arrives
+            StructuredContentParser parser = new StructuredContentParser(objectMapper, updates);
+            Completion completion = answer(request, conversationHistory, renderedContext, analysis, enhancedPrompt,
+                    modelOverride != null ? modelOverride : model, updates != null ? parser::accept : null);
+            String aiResponse = completion.content;
+            if (updates == null) {
+                parser.accept(aiResponse);
+            }
+            parser.finish();
             
-            // Format response based on analysis
-            ChatMessage.ResponseFormat format = determineResponseFormat(analysis, aiResponse);
-            Object formattedContent = formatContent(aiResponse, format, analysis);
+            // Format from the structure actually found in the answer, the analysis decides otherwise
+            ChatMessage.ResponseFormat format = determineResponseFormat(analysis, parser);
+            Object formattedContent = formatContent(aiResponse, format, analysis, parser);
             
             return ChatResponse.builder()
                     .sessionId(request.getSessionId())
@@ -67,6 +121,7 @@ public class OpenAIServiceImpl implements AIService {
                     .success(true)
                     .metadata(analysis)
                     .suggestedActions(generateSuggestedActions(analysis))
+                    .usage(completion.usage)
                     .build();
                     
         } catch (Exception e) {
@@ -93,7 +148,7 @@ public class OpenAIServiceImpl implements AIService {
     @Override
     public ChatResponse formatResponse(String message, Object content, String format) {
         ChatMessage.ResponseFormat responseFormat = ChatMessage.ResponseFormat.valueOf(format.toUpperCase());
-        Object formattedContent = formatContent(message, responseFormat, Collections.emptyMap());
+        Object formattedContent = formatContent(message, responseFormat, Collections.emptyMap(), parse(message));
         
         return ChatResponse.builder()
                 .message(message)
@@ -104,6 +159,69 @@ public class OpenAIServiceImpl implements AIService {
                 .build();
     }
     
+    @Override
+    public String summarizeConversation(String previousSummary, List<String> turns,
+                                        Consumer<ChatResponse.Usage> onUsage) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Summarize the following support conversation in a few sentences. ");
+        prompt.append("Keep names, identifiers, numbers and open questions; drop pleasantries.\n\n");
+        
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            prompt.append("Summary so far:\n").append(previousSummary).append("\n\n");
+        }
+        
+        prompt.append("New turns:\n");
+        turns.forEach(turn -> prompt.append(turn).append("\n"));
+        
+        try {
+            Completion completion = complete(prompt.toString(), model);
+            onUsage.accept(completion.usage);
+            return completion.content;
+        } catch (Exception e) {
+            throw new IllegalStateException("Summarization failed: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void warmUp(ChatRequest sample) {
+        Map<String, Object> analysis = analyzeMessage(sample.getMessage(), sample.getSystemContext());
+        String prompt = buildContextualPrompt(sample, Collections.emptyList(), renderContext(sample.getSystemContext()));
+        StructuredContentParser parser = parse(prompt);
+        determineResponseFormat(analysis, parser);
+        for (ChatMessage.ResponseFormat format : ChatMessage.ResponseFormat.values()) {
+            formatContent(prompt, format, analysis, parser);
+        }
+        generateSuggestedActions(analysis);
+    }
+    
+    @Override
+    public void prewarmConnections(int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(apiKey);
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        
+        // Concurrent requests, otherwise they would all reuse the first kept-alive connection
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            CompletableFuture<?>[] requests = new CompletableFuture<?>[connections];
+            for (int i = 0; i < connections; i++) {
+                requests[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        restTemplate.exchange(baseUrl + MODELS_PATH, HttpMethod.GET, entity, String.class);
+                    } catch (RestClientException e) {
+                        log.warn("Error pre-warming OpenAI connection: {}", e.getMessage());
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(requests).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
     @Override
     public Map<String, Object> analyzeMessage(String message, Map<String, Object> context) {
         Map<String, Object> analysis = new HashMap<>();
@@ -127,19 +245,28 @@ public class OpenAIServiceImpl implements AIService {
         return analysis;
     }
     
-    private String buildContextualPrompt(ChatRequest request, List<String> history) {
+    @Override
+    public String renderContext(Map<String, Object> systemContext) {
+        if (systemContext == null || systemContext.isEmpty()) {
+            return "";
+        }
+        StringBuilder block = new StringBuilder("System Context:\n");
+        systemContext.forEach((key, value) -> 
+            block.append("- ").append(key).append(": ").append(value).append("\n"));
+        block.append("\n");
+        return block.toString();
+    }
+    
+    private String buildContextualPrompt(ChatRequest request, List<String> history, String renderedContext) {
         StringBuilder prompt = new StringBuilder();
         
         // System context
         prompt.append("You are an AI assistant integrated into a backend management system. ");
         prompt.append("Provide helpful, accurate responses based on the context provided.\n\n");
         
-        // Add system context if available
-        if (request.getSystemContext() != null && !request.getSystemContext().isEmpty()) {
-            prompt.append("System Context:\n");
-            request.getSystemContext().forEach((key, value) -> 
-                prompt.append("- ").append(key).append(": ").append(value).append("\n"));
-            prompt.append("\n");
+        // Add pre-rendered system context if available
+        if (renderedContext != null) {
+            prompt.append(renderedContext);
         }
         
         // Add conversation history
@@ -159,13 +286,165 @@ public class OpenAIServiceImpl implements AIService {
         return prompt.toString();
     }
     
-    private String callOpenAI(String prompt) throws Exception {
+    private Completion answer(ChatRequest request, List<String> history, String renderedContext,
+                              Map<String, Object> analysis, String prompt, String completionModel,
+                              Consumer<String> onDelta) throws Exception {
+        // Follow-up questions depend on the conversation, only standalone ones are cacheable
+        boolean cacheable = similarityCache.isEnabled() && (history == null || history.isEmpty());
+        if (!cacheable) {
+            return complete(prompt, completionModel, onDelta);
+        }
+        
+        String scope = cacheScope(request, analysis, renderedContext);
+        Optional<String> cached = similarityCache.lookup(scope, request.getMessage());
+        if (cached.isPresent() && !similarityCache.shouldVerify()) {
+            if (onDelta != null) {
+                onDelta.accept(cached.get());
+            }
+            return new Completion(cached.get(), null); // No provider tokens spent
+        }
+        
+        Completion fresh = complete(prompt, completionModel, onDelta);
+        if (cached.isPresent()) {
+            similarityCache.recordVerification(cached.get(), fresh.content);
+        } else {
+            similarityCache.store(scope, request.getMessage(), fresh.content);
+        }
+        return fresh;
+    }
+    
+    /**
+     * Cached answers are only shared between messages with the same intent, data
+     * type, page and context that name exactly the same values. Similar wording
+     * with a different year, id or name is a different question.
+     */
+    private String cacheScope(ChatRequest request, Map<String, Object> analysis, String renderedContext) {
+        return analysis.get("intent") + "|" + analysis.get("dataType") + "|" + request.getCurrentPage() + "|"
+                + (renderedContext != null ? sha256(renderedContext) : "") + "|"
+                + String.join(",", specificValues(request.getMessage()));
+    }
+    
+    /**
+     * Hex SHA-256 digest, so different contexts never share a scope by a hash collision.
+     */
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Values a message names: quoted phrases, tokens containing digits or '@'
+     * (numbers, dates, ids, emails) and capitalized words after the first.
+     */
+    private static Set<String> specificValues(String message) {
+        Set<String> values = new TreeSet<>();
+        Matcher quoted = QUOTED_PATTERN.matcher(message);
+        while (quoted.find()) {
+            values.add(quoted.group(1).trim().toLowerCase(Locale.ROOT));
+        }
+        Matcher tokens = TOKEN_PATTERN.matcher(message);
+        boolean first = true;
+        while (tokens.find()) {
+            String token = tokens.group();
+            boolean specific = token.chars().anyMatch(c -> Character.isDigit(c) || c == '@')
+                    || (!first && Character.isUpperCase(token.charAt(0)));
+            if (specific) {
+                values.add(token.toLowerCase(Locale.ROOT));
+            }
+            first = false;
+        }
+        return values;
+    }
+    
+    private Completion complete(String prompt, String completionModel, Consumer<String> onDelta) throws Exception {
+        return onDelta != null ? completeStreaming(prompt, completionModel, onDelta) : complete(prompt, completionModel);
+    }
+    
+    private Completion complete(String prompt, String completionModel) throws Exception {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + apiKey);
         headers.set("Content-Type", "application/json");
         
+        Map<String, Object> requestBody = completionRequest(prompt, completionModel);
+        
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + COMPLETIONS_PATH, HttpMethod.POST, entity, String.class);
+        
+        JsonNode jsonResponse = objectMapper.readTree(response.getBody());
+        String content = jsonResponse.path("choices").get(0).path("message").path("content").asText();
+        
+        JsonNode usage = jsonResponse.path("usage");
+        return new Completion(content, ChatResponse.Usage.builder()
+                .model(jsonResponse.path("model").asText(completionModel))
+                .promptTokens(usage.path("prompt_tokens").asLong())
+                .completionTokens(usage.path("completion_tokens").asLong())
+                .build());
+    }
+    
+    /**
+     * Completion with server-sent events: each content delta is passed on as it
+     * arrives; usage comes in a final chunk of its own.
+     */
+    private Completion completeStreaming(String prompt, String completionModel, Consumer<String> onDelta) {
+        Map<String, Object> requestBody = completionRequest(prompt, completionModel);
+        requestBody.put("stream", true);
+        requestBody.put("stream_options", Collections.singletonMap("include_usage", true));
+        
+        return restTemplate.execute(baseUrl + COMPLETIONS_PATH, HttpMethod.POST, request -> {
+            request.getHeaders().setBearerAuth(apiKey);
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            objectMapper.writeValue(request.getBody(), requestBody);
+        }, response -> readStream(response.getBody(), completionModel, onDelta));
+    }
+    
+    private Completion readStream(InputStream body, String completionModel, Consumer<String> onDelta) throws IOException {
+        StringBuilder content = new StringBuilder();
+        ChatResponse.Usage usage = null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelled by the caller; closing the response stops generation upstream
+                throw new InterruptedIOException("Completion cancelled");
+            }
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+            if (delta.isTextual() && !delta.textValue().isEmpty()) {
+                content.append(delta.textValue());
+                onDelta.accept(delta.textValue());
+            }
+            JsonNode chunkUsage = chunk.path("usage");
+            if (chunkUsage.isObject()) {
+                usage = ChatResponse.Usage.builder()
+                        .model(chunk.path("model").asText(completionModel))
+                        .promptTokens(chunkUsage.path("prompt_tokens").asLong())
+                        .completionTokens(chunkUsage.path("completion_tokens").asLong())
+                        .build();
+            }
+        }
+        return new Completion(content.toString(), usage);
+    }
+    
+    private Map<String, Object> completionRequest(String prompt, String completionModel) {
         Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", model);
+        requestBody.put("model", completionModel);
         requestBody.put("max_tokens", maxTokens);
         requestBody.put("temperature", temperature);
         
@@ -175,14 +454,7 @@ public class OpenAIServiceImpl implements AIService {
         message.put("content", prompt);
         messages.add(message);
         requestBody.put("messages", messages);
-        
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        ResponseEntity<String> response = restTemplate.exchange(
-                OPENAI_API_URL, HttpMethod.POST, entity, String.class);
-        
-        JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-        return jsonResponse.path("choices").get(0).path("message").path("content").asText();
+        return requestBody;
     }
     
     private String detectIntent(String message) {
@@ -251,18 +523,29 @@ public class OpenAIServiceImpl implements AIService {
         return entities;
     }
     
-    private ChatMessage.ResponseFormat determineResponseFormat(Map<String, Object> analysis, String response) {
-        String suggestedFormat = (String) analysis.get("suggestedFormat");
-        
-        // Check if response contains structured data indicators
-        if (response.contains("```json") || response.contains("{") || response.contains("[")) {
-            return ChatMessage.ResponseFormat.CARD;
+    private StructuredContentParser parse(String response) {
+        StructuredContentParser parser = new StructuredContentParser(objectMapper, null);
+        parser.accept(response);
+        parser.finish();
+        return parser;
+    }
+    
+    private ChatMessage.ResponseFormat determineResponseFormat(Map<String, Object> analysis, StructuredContentParser parsed) {
+        // A table, list or JSON structure in the answer wins over the suggestion from the question
+        if (parsed.getFormat() != null) {
+            return parsed.getFormat();
         }
         
-        return ChatMessage.ResponseFormat.valueOf(suggestedFormat);
+        // Detail questions still get a card; list and table suggestions need actual rows or items
+        String suggestedFormat = (String) analysis.get("suggestedFormat");
+        return "CARD".equals(suggestedFormat) ? ChatMessage.ResponseFormat.CARD : ChatMessage.ResponseFormat.TEXT;
     }
     
-    private Object formatContent(String response, ChatMessage.ResponseFormat format, Map<String, Object> analysis) {
+    private Object formatContent(String response, ChatMessage.ResponseFormat format, Map<String, Object> analysis,
+                                 StructuredContentParser parsed) {
+        if (format == parsed.getFormat()) {
+            return parsed.getContent();
+        }
         switch (format) {
             case CARD:
                 return createCardContent(response, analysis);
@@ -286,12 +569,11 @@ public class OpenAIServiceImpl implements AIService {
     private ChatResponse.ListContent createListContent(String response, Map<String, Object> analysis) {
         List<ChatResponse.ListContent.ListItem> items = new ArrayList<>();
         
-        // Parse response into list items (simplified)
-        String[] lines = response.split("\n");
-        for (String line : lines) {
-            if (line.trim().startsWith("-") || line.trim().startsWith("•")) {
+        // No list markup in the response, one item per line
+        for (String line : response.split("\n")) {
+            if (!line.trim().isEmpty()) {
                 items.add(ChatResponse.ListContent.ListItem.builder()
-                        .title(line.trim().substring(1).trim())
+                        .title(line.trim())
                         .build());
             }
         }
@@ -315,13 +597,33 @@ public class OpenAIServiceImpl implements AIService {
         
         String intent = (String) analysis.get("intent");
         if ("list".equals(intent)) {
-            actions.add(ChatResponse.ActionButton.builder()
-                    .label("View Details")
-                    .action("view_details")
-                    .type("function")
-                    .build());
+            if (speculativeFollowUps) {
+                // Sent back as a chat message, so speculative answering can prepare it
+                actions.add(ChatResponse.ActionButton.builder()
+                        .label("View Details")
+                        .action("view_details")
+                        .type("message")
+                        .parameters(Collections.singletonMap("message", "Show more details about these results"))
+                        .build());
+            } else {
+                actions.add(ChatResponse.ActionButton.builder()
+                        .label("View Details")
+                        .action("view_details")
+                        .type("function")
+                        .build());
+            }
         }
         
         return actions;
     }
-}
\ No newline at end of file
+    
+    private static final class Completion {
+        private final String content;
+        private final ChatResponse.Usage usage; // null when no provider call was made
+        
+        private Completion(String content, ChatResponse.Usage usage) {
+            this.content = content;
+            this.usage = usage;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+#!/bin/bash
+
+# AI Chatbot Fast-Start Script
+# Builds an application class-data-sharing (AppCDS) archive for the backend and
+# benchmarks startup time and first-request latency with and without it.
+#
+# Usage:
+#   ./examples/fast-start.sh archive   # build the jar and the CDS archive
+#   ./examples/fast-start.sh run       # start with the fast-start profile and the archive
+#   ./examples/fast-start.sh bench     # compare default, fast-start and fast-start + CDS
+
+set -e
+
+WORK_DIR=${WORK_DIR:-./data/fast-start}
+PORT=${PORT:-8080}
+REQUESTS=${REQUESTS:-20}
+APP_DIR="$WORK_DIR/app"
+CLASS_LIST="$WORK_DIR/app.classlist"
+ARCHIVE="$WORK_DIR/app.jsa"
+MAIN_CLASS=com.chatbot.ChatbotApplication
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+print_step() {
+    echo -e "${BLUE}[STEP]${NC} $1"
+}
+
+# CDS needs a plain, identical classpath at dump and run time, so the fat jar is
+# unpacked and its libraries listed explicitly in a fixed order
+classpath() {
+    local cp="$APP_DIR/BOOT-INF/classes"
+    for jar in $(ls "$APP_DIR"/BOOT-INF/lib/*.jar | sort); do
+        cp="$cp:$jar"
+    done
+    echo "$cp"
+}
+
+build_app() {
+    print_step "Building backend..."
+    (cd backend && mvn clean package -DskipTests -q)
+    local app_jar
+    app_jar=$(ls "$(pwd)"/backend/target/ai-chatbot-backend-*.jar | head -n 1)
+    rm -rf "$APP_DIR"
+    mkdir -p "$APP_DIR"
+    (cd "$APP_DIR" && jar -xf "$app_jar")
+}
+
+build_archive() {
+    build_app
+    local cp
+    cp=$(classpath)
+
+    print_step "Training run: recording classes loaded during startup and warm-up..."
+    java -XX:DumpLoadedClassList="$CLASS_LIST" -cp "$cp" "$MAIN_CLASS" \
+        --spring.profiles.active=fast-start \
+        --server.port="$PORT" \
+        --spring.datasource.url="jdbc:h2:mem:training" \
+        --chat.startup.exit-after-warmup=true > "$WORK_DIR/training.log" 2>&1 || true
+
+    print_step "Dumping class-data-sharing archive..."
+    java -Xshare:dump -XX:SharedClassListFile="$CLASS_LIST" -XX:SharedArchiveFile="$ARCHIVE" -cp "$cp" \
+        > "$WORK_DIR/dump.log" 2>&1
+    print_status "Archive written to $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
+}
+
+# Start the backend in the background; $1 = profile, $2 = extra JVM options
+start_backend() {
+    java $2 -cp "$(classpath)" "$MAIN_CLASS" \
+        --spring.profiles.active="$1" \
+        --server.port="$PORT" \
+        --spring.datasource.url="jdbc:h2:mem:bench" > "$WORK_DIR/bench-$1.log" 2>&1 &
+    BACKEND_PID=$!
+}
+
+# Milliseconds until the readiness probe reports UP
+wait_until_ready() {
+    local started=$1
+    for attempt in $(seq 1 600); do
+        if curl -sf "http://localhost:$PORT/api/actuator/health/readiness" > /dev/null; then
+            echo $(( $(date +%s%3N) - started ))
+            return
+        fi
+        sleep 0.1
+    done
+    print_error "Backend did not become ready"
+    exit 1
+}
+
+# Latency of the first requests after readiness, in milliseconds
+first_requests() {
+    for i in $(seq 1 "$REQUESTS"); do
+        curl -s -o /dev/null -w "%{time_total}\n" -X POST "http://localhost:$PORT/api/chat/public/demo" \
+            -H "Content-Type: application/json" \
+            -d "{\"message\": \"Show me all active users\", \"systemContext\": {\"currentPage\": \"dashboard\"}}"
+    done | awk '{ printf "%.0f\n", $1 * 1000 }'
+}
+
+bench_mode() {
+    local name=$1 profile=$2 jvm_options=$3
+    local started
+    started=$(date +%s%3N)
+    start_backend "$profile" "$jvm_options"
+    local ready
+    ready=$(wait_until_ready "$started")
+    local latencies
+    latencies=$(first_requests)
+    kill "$BACKEND_PID"
+    wait "$BACKEND_PID" 2>/dev/null || true
+
+    local first median
+    first=$(echo "$latencies" | head -n 1)
+    median=$(echo "$latencies" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+    printf "%-20s ready in %6s ms   first request %5s ms   median of %s %5s ms\n" \
+        "$name" "$ready" "$first" "$REQUESTS" "$median"
+}
+
+run_bench() {
+    if [ ! -f "$ARCHIVE" ]; then
+        build_archive
+    fi
+    print_step "Benchmarking startup and first-request latency..."
+    print_status "Requests go to the demo endpoint; without a provider API key they measure the local path only"
+    bench_mode "default" "default" "-Xshare:auto"
+    bench_mode "fast-start" "fast-start" "-Xshare:auto"
+    bench_mode "fast-start + CDS" "fast-start" "-Xshare:auto -XX:SharedArchiveFile=$ARCHIVE"
+}
+
+mkdir -p "$WORK_DIR"
+
+case "${1:-bench}" in
+    archive)
+        build_archive
+        ;;
+    run)
+        if [ ! -f "$ARCHIVE" ]; then
+            build_archive
+        fi
+        exec java -Xshare:auto -XX:SharedArchiveFile="$ARCHIVE" -cp "$(classpath)" "$MAIN_CLASS" \
+            --spring.profiles.active=fast-start --server.port="$PORT"
+        ;;
+    bench)
+        run_bench
+        ;;
+    *)
+        print_error "Unknown command: $1 (expected archive, run or bench)"
+        exit 1
+        ;;
+esac
@@ -0,0 +1,85 @@
+#!/bin/bash
+
+# AI Chatbot Logging Benchmark
+# Measures the per-request cost of logging by load-testing the demo endpoint with
+# development logging (synchronous console, DEBUG) and production logging
+# (async-logging profile), and with a burst of invalid tokens as seen under attack.
+
+set -e
+
+PORT=${PORT:-8080}
+REQUESTS=${REQUESTS:-5000}
+CONCURRENCY=${CONCURRENCY:-20}
+WORK_DIR=${WORK_DIR:-./data/logging-bench}
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+print_step() {
+    echo -e "${BLUE}[STEP]${NC} $1"
+}
+
+check_prerequisites() {
+    if ! command -v ab &> /dev/null; then
+        print_error "Apache Bench (ab) is not installed."
+        exit 1
+    fi
+}
+
+build_backend() {
+    print_step "Building backend..."
+    (cd backend && mvn clean package -DskipTests -q)
+}
+
+# $1 = profile
+bench_profile() {
+    local profile=$1
+    java -jar backend/target/ai-chatbot-backend-*.jar \
+        --spring.profiles.active="$profile" \
+        --server.port="$PORT" > "$WORK_DIR/$profile.log" 2>&1 &
+    local pid=$!
+
+    for attempt in $(seq 1 120); do
+        if curl -sf "http://localhost:$PORT/api/actuator/health/readiness" > /dev/null; then
+            break
+        fi
+        sleep 1
+    done
+
+    echo '{"message": "Show me all active users", "systemContext": {"currentPage": "dashboard"}}' > "$WORK_DIR/message.json"
+    # Warm up, then measure
+    ab -q -n 500 -c "$CONCURRENCY" -p "$WORK_DIR/message.json" -T application/json \
+        "http://localhost:$PORT/api/chat/public/demo" > /dev/null
+    local chat
+    chat=$(ab -q -n "$REQUESTS" -c "$CONCURRENCY" -p "$WORK_DIR/message.json" -T application/json \
+        "http://localhost:$PORT/api/chat/public/demo" | awk '/Time per request/ && /mean\)/ { print $4; exit }')
+    local attack
+    attack=$(ab -q -n "$REQUESTS" -c "$CONCURRENCY" -H "Authorization: Bearer not-a-token" \
+        "http://localhost:$PORT/api/chat/sessions" | awk '/Time per request/ && /mean\)/ { print $4; exit }')
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    local lines
+    lines=$(wc -l < "$WORK_DIR/$profile.log")
+    printf "%-15s chat %8s ms/request   invalid token %8s ms/request   %8s log lines\n" \
+        "$profile" "$chat" "$attack" "$lines"
+}
+
+check_prerequisites
+mkdir -p "$WORK_DIR"
+build_backend
+print_step "Benchmarking $REQUESTS requests at concurrency $CONCURRENCY per scenario..."
+print_status "Without a provider API key the chat scenario measures the local path and its error logging"
+bench_profile default
+bench_profile async-logging
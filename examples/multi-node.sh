@@ -0,0 +1,186 @@
+#!/bin/bash
+
+# AI Chatbot Multi-Node Check
+# Runs several backend instances locally against one shared H2 database, with
+# the JDBC session store and consistent-hash session affinity enabled, then
+# sends a conversation round-robin across the nodes. A local stand-in provider
+# answers with the number of earlier turns it was sent, so the script fails if
+# any node serves a turn with the wrong history, session or owner.
+
+set -e
+
+NODES=${NODES:-3}
+BASE_PORT=${BASE_PORT:-8080}
+DATA_DIR=${DATA_DIR:-./data/multi-node}
+MOCK_PORT=${MOCK_PORT:-9090}
+TURNS=${TURNS:-6}
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+print_step() {
+    echo -e "${BLUE}[STEP]${NC} $1"
+}
+
+PIDS=()
+
+cleanup() {
+    print_step "Stopping nodes..."
+    for pid in "${PIDS[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+}
+trap cleanup EXIT
+
+build_backend() {
+    print_step "Building backend..."
+    (cd backend && mvn clean package -DskipTests -q)
+}
+
+# Stand-in for the provider: answers "history=N", N being the earlier turns in the prompt
+start_mock_provider() {
+    print_step "Starting stand-in provider on port $MOCK_PORT..."
+    mkdir -p "$DATA_DIR"
+    python3 - "$MOCK_PORT" > "$DATA_DIR/provider.log" 2>&1 <<'EOF_PROVIDER' &
+import json, sys
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+
+    def do_POST(self):
+        request = json.loads(self.rfile.read(int(self.headers.get("Content-Length", 0))))
+        prompt = request["messages"][-1]["content"]
+        turns = sum(1 for line in prompt.splitlines() if line.startswith("User: "))
+        self.reply({
+            "model": request.get("model", "mock"),
+            "choices": [{"message": {"role": "assistant", "content": "history=%d" % turns}}],
+            "usage": {"prompt_tokens": 10, "completion_tokens": 2},
+        })
+
+    def do_GET(self):
+        self.reply({"data": []})
+
+    def reply(self, payload):
+        body = json.dumps(payload).encode()
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, *args):
+        pass
+
+ThreadingHTTPServer(("127.0.0.1", int(sys.argv[1])), Handler).serve_forever()
+EOF_PROVIDER
+    PIDS+=($!)
+}
+
+start_nodes() {
+    mkdir -p "$DATA_DIR"
+    NODE_IDS=""
+    for i in $(seq 1 "$NODES"); do
+        NODE_IDS="${NODE_IDS:+$NODE_IDS,}node-$i"
+    done
+
+    for i in $(seq 1 "$NODES"); do
+        local port=$((BASE_PORT + i - 1))
+        print_step "Starting node-$i on port $port..."
+        # AUTO_SERVER lets every node open the same H2 file; point the URL at MySQL to use that instead
+        CHAT_NODE_ID="node-$i" CHAT_CLUSTER_NODES="$NODE_IDS" java -jar backend/target/ai-chatbot-backend-*.jar \
+            --server.port="$port" \
+            --spring.datasource.url="jdbc:h2:file:$(pwd)/$DATA_DIR/chatbot;AUTO_SERVER=TRUE" \
+            --spring.jpa.hibernate.ddl-auto=update \
+            --chat.session-store.type=jdbc \
+            --chat.journal.enabled=false \
+            --chat.search.directory="$DATA_DIR/search-index-$i" \
+            --ai.openai.base-url="http://127.0.0.1:$MOCK_PORT" \
+            --ai.openai.api-key=multi-node \
+            > "$DATA_DIR/node-$i.log" 2>&1 &
+        PIDS+=($!)
+    done
+
+    for i in $(seq 1 "$NODES"); do
+        local port=$((BASE_PORT + i - 1))
+        for attempt in $(seq 1 60); do
+            if curl -sf "http://localhost:$port/api/actuator/health" > /dev/null; then
+                print_status "node-$i is up"
+                break
+            fi
+            if [ "$attempt" -eq 60 ]; then
+                print_error "node-$i did not start, see $DATA_DIR/node-$i.log"
+                exit 1
+            fi
+            sleep 2
+        done
+    done
+}
+
+run_conversation() {
+    print_step "Sending one conversation round-robin across all nodes..."
+    local session_id="" first_owner="" failures=0
+    for turn in $(seq 1 "$TURNS"); do
+        local port=$((BASE_PORT + (turn - 1) % NODES))
+        local body="{\"message\": \"Turn $turn: how many users are active?\"${session_id:+, \"sessionId\": \"$session_id\"}}"
+        local headers
+        headers=$(mktemp)
+        local response
+        response=$(curl -s -D "$headers" -X POST "http://localhost:$port/api/chat/public/demo" \
+            -H "Content-Type: application/json" -d "$body")
+        local returned_session owner
+        returned_session=$(echo "$response" | sed -n 's/.*"sessionId" *: *"\([^"]*\)".*/\1/p')
+        owner=$(grep -i '^X-Chat-Session-Owner' "$headers" | cut -d' ' -f2 | tr -d '\r')
+        rm -f "$headers"
+
+        # Every node must continue the same session with every earlier turn, and agree on its owner
+        local expected_history=$((turn - 1))
+        if ! echo "$response" | grep -q "\"message\" *: *\"history=$expected_history\""; then
+            print_error "turn $turn on port $port: expected history=$expected_history, got: $response"
+            failures=$((failures + 1))
+        fi
+        if [ -n "$session_id" ] && [ "$returned_session" != "$session_id" ]; then
+            print_error "turn $turn on port $port: session changed from $session_id to $returned_session"
+            failures=$((failures + 1))
+        fi
+        if [ -z "$owner" ] || { [ -n "$first_owner" ] && [ "$owner" != "$first_owner" ]; }; then
+            print_error "turn $turn on port $port: owner '$owner', earlier turns reported '$first_owner'"
+            failures=$((failures + 1))
+        fi
+        if [[ ",$NODE_IDS," != *",$owner,"* ]]; then
+            print_error "turn $turn on port $port: owner '$owner' is not one of $NODE_IDS"
+            failures=$((failures + 1))
+        fi
+
+        session_id=${session_id:-$returned_session}
+        first_owner=${first_owner:-$owner}
+        print_status "turn $turn served by port $port, session $returned_session owned by $owner"
+    done
+
+    if [ "$failures" -gt 0 ]; then
+        print_error "$failures check(s) failed, node logs are in $DATA_DIR"
+        exit 1
+    fi
+    print_status "All $TURNS turns kept their session, history and owner across $NODES nodes"
+}
+
+build_backend
+start_mock_provider
+start_nodes
+run_conversation
+
+if [ "${KEEP_RUNNING:-false}" = "true" ]; then
+    print_status "Nodes are still running. Press Ctrl+C to stop."
+    wait
+fi
@@ -0,0 +1,196 @@
+#!/bin/bash
+
+# AI Chatbot Virtual-Thread Load Test
+# Compares the backend on Tomcat's platform worker pool with the virtual-threads
+# profile at high concurrency. A local stand-in provider answers every completion
+# after a fixed delay, so requests spend their time blocked on the upstream call
+# the way real chats do. Needs Java 21+, python3 and Apache Bench (ab).
+#
+# Usage:
+#   ./examples/virtual-threads-bench.sh                      # 1000 concurrent chats, 500 ms upstream latency
+#   CONCURRENCY=2000 LATENCY_MS=1000 ./examples/virtual-threads-bench.sh
+
+set -e
+
+WORK_DIR=${WORK_DIR:-./data/virtual-threads}
+PORT=${PORT:-8080}
+MOCK_PORT=${MOCK_PORT:-9090}
+CONCURRENCY=${CONCURRENCY:-1000}
+REQUESTS=${REQUESTS:-10000}
+LATENCY_MS=${LATENCY_MS:-500}
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+print_step() {
+    echo -e "${BLUE}[STEP]${NC} $1"
+}
+
+PIDS=()
+
+cleanup() {
+    for pid in "${PIDS[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+}
+trap cleanup EXIT
+
+check_requirements() {
+    local java_major
+    java_major=$(java -version 2>&1 | head -n 1 | sed -E 's/.*version "([0-9]+).*/\1/')
+    if [ "$java_major" -lt 21 ]; then
+        print_error "Virtual threads need Java 21 or newer, found Java $java_major"
+        exit 1
+    fi
+    for tool in python3 ab curl; do
+        if ! command -v "$tool" > /dev/null; then
+            print_error "$tool is required"
+            exit 1
+        fi
+    done
+}
+
+build_backend() {
+    print_step "Building backend..."
+    (cd backend && mvn clean package -DskipTests -q)
+}
+
+# Stand-in for the provider: answers every completion after LATENCY_MS
+start_mock_provider() {
+    print_step "Starting stand-in provider on port $MOCK_PORT (${LATENCY_MS} ms per completion)..."
+    python3 - "$MOCK_PORT" "$LATENCY_MS" > "$WORK_DIR/provider.log" 2>&1 <<'EOF' &
+import json, sys, time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+port, latency = int(sys.argv[1]), int(sys.argv[2]) / 1000.0
+body = json.dumps({
+    "model": "bench-model",
+    "choices": [{"message": {"role": "assistant", "content": "There are 42 active users."}}],
+    "usage": {"prompt_tokens": 120, "completion_tokens": 8},
+}).encode()
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+
+    def do_POST(self):
+        self.rfile.read(int(self.headers.get("Content-Length", 0)))
+        time.sleep(latency)
+        self.reply()
+
+    def do_GET(self):
+        self.reply()
+
+    def reply(self):
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, *args):
+        pass
+
+ThreadingHTTPServer.request_queue_size = 4096
+ThreadingHTTPServer.daemon_threads = True
+ThreadingHTTPServer(("127.0.0.1", port), Handler).serve_forever()
+EOF
+    PIDS+=($!)
+}
+
+# Start the backend in the background; $1 = profile
+start_backend() {
+    java -jar backend/target/ai-chatbot-backend-*.jar \
+        --spring.profiles.active="$1" \
+        --server.port="$PORT" \
+        --server.tomcat.accept-count=4096 \
+        --server.tomcat.max-connections=16384 \
+        --spring.datasource.url="jdbc:h2:mem:bench" \
+        --spring.jpa.open-in-view=false \
+        --ai.openai.base-url="http://127.0.0.1:$MOCK_PORT" \
+        --ai.openai.api-key=bench \
+        --chat.similarity-cache.enabled=false \
+        --logging.level.com.chatbot=WARN \
+        --logging.level.org.springframework.security=WARN > "$WORK_DIR/backend-$1.log" 2>&1 &
+    BACKEND_PID=$!
+    PIDS+=($BACKEND_PID)
+
+    for attempt in $(seq 1 120); do
+        if curl -sf "http://localhost:$PORT/api/actuator/health/readiness" > /dev/null; then
+            return
+        fi
+        sleep 1
+    done
+    print_error "Backend did not start, see $WORK_DIR/backend-$1.log"
+    exit 1
+}
+
+stop_backend() {
+    kill "$BACKEND_PID"
+    wait "$BACKEND_PID" 2>/dev/null || true
+}
+
+# Highest number of OS threads in the backend process while the load runs
+sample_threads() {
+    local peak=0 current
+    while kill -0 "$BACKEND_PID" 2>/dev/null && [ ! -f "$WORK_DIR/load.done" ]; do
+        current=$(ps -o nlwp= -p "$BACKEND_PID" | tr -d ' ')
+        if [ -n "$current" ] && [ "$current" -gt "$peak" ]; then
+            peak=$current
+        fi
+        sleep 0.5
+    done
+    echo "$peak"
+}
+
+bench_mode() {
+    local name=$1 profile=$2
+    print_step "Benchmarking $name..."
+    start_backend "$profile"
+
+    local url="http://localhost:$PORT/api/chat/public/demo"
+    ab -q -n 500 -c 50 -p "$WORK_DIR/message.json" -T application/json "$url" > /dev/null 2>&1 || true
+
+    rm -f "$WORK_DIR/load.done"
+    sample_threads > "$WORK_DIR/threads-$profile.txt" &
+    local sampler=$!
+    ab -q -r -s 120 -n "$REQUESTS" -c "$CONCURRENCY" -p "$WORK_DIR/message.json" -T application/json "$url" \
+        > "$WORK_DIR/ab-$profile.txt" 2>&1 || true
+    touch "$WORK_DIR/load.done"
+    wait "$sampler"
+    stop_backend
+
+    local report="$WORK_DIR/ab-$profile.txt"
+    local throughput failed median p99 threads
+    throughput=$(awk '/^Requests per second/ { print $4 }' "$report")
+    failed=$(awk '/^Failed requests/ { print $3 }' "$report")
+    median=$(awk '$1 == "50%" { print $2 }' "$report")
+    p99=$(awk '$1 == "99%" { print $2 }' "$report")
+    threads=$(cat "$WORK_DIR/threads-$profile.txt")
+    printf "%-10s %10s req/s   median %6s ms   p99 %6s ms   failed %5s   peak OS threads %5s\n" \
+        "$name" "$throughput" "$median" "$p99" "$failed" "$threads" >> "$WORK_DIR/results.txt"
+}
+
+mkdir -p "$WORK_DIR"
+rm -f "$WORK_DIR/results.txt"
+echo '{"message": "How many users are active?", "systemContext": {"currentPage": "dashboard"}}' > "$WORK_DIR/message.json"
+
+check_requirements
+build_backend
+start_mock_provider
+bench_mode "platform" "default"
+bench_mode "virtual" "virtual-threads"
+
+print_status "$REQUESTS chats, $CONCURRENCY concurrent, ${LATENCY_MS} ms upstream latency:"
+cat "$WORK_DIR/results.txt"
+print_status "Raw ab reports and backend logs are in $WORK_DIR"
@@ -156,6 +156,54 @@ class ChatApiService {
     }
   }
   
+  // Streams the answer as NDJSON events: TABLE/LIST start a structure, ROW/ITEM
+  // arrive as soon as they are parsed (an ITEM with a known index replaces it),
+  // CARD once complete, and RESPONSE carries the full response last
+  async streamMessage(messageData, onEvent) {
+    const token = this.getAuthToken()
+    const response = await fetch(`${this.baseURL}/chat/message`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        Accept: 'application/x-ndjson',
+        ...(token ? { Authorization: `Bearer ${token}` } : {})
+      },
+      body: JSON.stringify(messageData)
+    })
+    if (!response.ok) {
+      const error = new Error(`Request failed with status ${response.status}`)
+      error.userMessage = this.getUserFriendlyErrorMessage(response.status, null)
+      throw error
+    }
+    
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder()
+    let buffered = ''
+    let result = null
+    for (;;) {
+      const { done, value } = await reader.read()
+      if (done) {
+        break
+      }
+      buffered += decoder.decode(value, { stream: true })
+      let newline
+      while ((newline = buffered.indexOf('\n')) >= 0) {
+        const line = buffered.slice(0, newline).trim()
+        buffered = buffered.slice(newline + 1)
+        if (!line) {
+          continue
+        }
+        const event = JSON.parse(line)
+        if (event.type === 'RESPONSE') {
+          result = event.response
+        } else if (onEvent) {
+          onEvent(event)
+        }
+      }
+    }
+    return result
+  }
+  
   async getChatHistory(sessionId) {
     try {
       const response = await this.client.get(`/chat/history/${sessionId}`)
@@ -326,6 +374,7 @@ export default chatApiService
 // Named exports for specific methods
 export const {
   sendMessage,
+  streamMessage,
   getChatHistory,
   getUserSessions,
   endSession,
@@ -1,4 +1,5 @@
 import axios from 'axios'
+import chatApi from '../services/chatApi'
 
 // API Configuration
 const API_BASE_URL = process.env.VUE_APP_API_URL || 'http://localhost:8080/api'
@@ -127,6 +128,38 @@ const mutations = {
     }
   },
   
+  // Builds a bot message from streamed events: TABLE/LIST/CARD set its format and
+  // content, ROW/ITEM fill in at their index (a repeated index replaces the entry)
+  APPLY_STREAM_EVENT(state, { id, event }) {
+    const message = state.messages.find(msg => msg.id === id)
+    if (!message) return
+    
+    switch (event.type) {
+      case 'TABLE':
+        message.format = 'TABLE'
+        message.content = { title: event.title, headers: event.headers || [], rows: [] }
+        break
+      case 'ROW':
+        if (message.content && message.content.rows) {
+          message.content.rows.splice(event.index, 1, event.row)
+        }
+        break
+      case 'LIST':
+        message.format = 'LIST'
+        message.content = { title: event.title, items: [] }
+        break
+      case 'ITEM':
+        if (message.content && message.content.items) {
+          message.content.items.splice(event.index, 1, event.item)
+        }
+        break
+      case 'CARD':
+        message.format = 'CARD'
+        message.content = event.card
+        break
+    }
+  },
+  
   UPDATE_MESSAGE(state, { id, updates }) {
     const messageIndex = state.messages.findIndex(msg => msg.id === id)
     if (messageIndex !== -1) {
@@ -253,6 +286,10 @@ const actions = {
   async sendChatMessage({ commit, state, dispatch }, payload) {
     const { message, currentPage, systemContext, userPreferences } = payload
     
+    // Added on the first streamed event, so structured answers render as they arrive
+    const botMessageId = Date.now() + Math.random()
+    let streaming = false
+    
     try {
       commit('SET_LOADING', true)
       commit('SET_ERROR', null)
@@ -284,8 +321,26 @@ const actions = {
       }
       
       // Send to API
-      const response = await apiClient.post('/chat/message', requestData)
-      const aiResponse = response.data
+      const aiResponse = await chatApi.streamMessage(requestData, event => {
+        if (!streaming) {
+          streaming = true
+          commit('ADD_MESSAGE', {
+            id: botMessageId,
+            content: '',
+            format: 'TEXT',
+            // Declared up front so the final update stays reactive
+            metadata: undefined,
+            suggestedActions: undefined,
+            error: false,
+            isUser: false,
+            sessionId: state.currentSession?.sessionId
+          })
+        }
+        commit('APPLY_STREAM_EVENT', { id: botMessageId, event })
+      })
+      if (!aiResponse) {
+        throw new Error('Response stream ended before the answer was complete')
+      }
       
       // Update session if new one was created
       if (aiResponse.sessionId && aiResponse.sessionId !== state.currentSession?.sessionId) {
@@ -307,7 +362,11 @@ const actions = {
         sessionId: aiResponse.sessionId,
         timestamp: aiResponse.timestamp
       }
-      commit('ADD_MESSAGE', botMessage)
+      if (streaming) {
+        commit('UPDATE_MESSAGE', { id: botMessageId, updates: botMessage })
+      } else {
+        commit('ADD_MESSAGE', botMessage)
+      }
       
       // Save session to localStorage
       dispatch('saveSessionToStorage')
@@ -323,9 +382,14 @@ const actions = {
         error: true,
         sessionId: state.currentSession?.sessionId
       }
-      commit('ADD_MESSAGE', errorMessage)
+      if (streaming) {
+        // Replace the partly streamed answer
+        commit('UPDATE_MESSAGE', { id: botMessageId, updates: errorMessage })
+      } else {
+        commit('ADD_MESSAGE', errorMessage)
+      }
       
-      commit('SET_ERROR', error.response?.data?.message || 'Failed to send message')
+      commit('SET_ERROR', error.userMessage || error.response?.data?.message || 'Failed to send message')
     } finally {
       commit('SET_LOADING', false)
     }